@@ -0,0 +1,81 @@
+package com.matthewn4444.ebml.bench;
+
+import com.matthewn4444.ebml.EBMLReader;
+import com.matthewn4444.ebml.subtitles.Subtitles;
+
+import java.io.IOException;
+
+/**
+ * Reads every subtitle of a file with readAllSubtitles() on 1 up to T threads and prints the time
+ * and the speedup over one thread for each thread count. Use a file without subtitle positions
+ * in its cues, other files read each subtitle directly and do not use more than one thread.
+ *
+ * Usage:
+ *      java ParallelSubtitlesBenchmark [-rounds R] [-threads T] file.mkv
+ *
+ * The thread counts are powers of two up to T, which defaults to 8. Each thread count runs R
+ * rounds (default 5) after R rounds to warm up, the best is printed.
+ */
+public class ParallelSubtitlesBenchmark {
+    private static int sCaptionCount;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = 5;
+        int maxThreads = 8;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                maxThreads = Integer.parseInt(args[++i]);
+            } else {
+                path = args[i];
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: ParallelSubtitlesBenchmark [-rounds R] [-threads T] "
+                    + "file.mkv");
+            System.exit(1);
+        }
+        System.out.println(Runtime.getRuntime().availableProcessors() + " cores");
+
+        long single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            for (int r = 0; r < rounds; r++) {
+                run(path, threads);
+            }
+            long best = Long.MAX_VALUE;
+            for (int r = 0; r < rounds; r++) {
+                best = Math.min(best, run(path, threads));
+            }
+            if (threads == 1) {
+                single = best;
+            }
+            System.out.printf("%3d threads: %9.3f ms  %5.2fx  (%d captions)%n", threads,
+                    best / 1e6, (double) single / best, sCaptionCount);
+        }
+    }
+
+    // Time of reading all the subtitles, the header, tracks and cues are read before
+    private static long run(String path, int threads) throws IOException {
+        EBMLReader reader = new EBMLReader(path);
+        try {
+            if (!reader.readHeader()) {
+                throw new IOException(path + " is not an mkv file");
+            }
+            reader.readTracks();
+            reader.readCues();
+            long start = System.nanoTime();
+            reader.readAllSubtitles(threads);
+            long time = System.nanoTime() - start;
+
+            sCaptionCount = 0;
+            for (Subtitles subs : reader.getSubtitles()) {
+                sCaptionCount += subs.readUnreadSubtitles().size();
+            }
+            return time;
+        } finally {
+            reader.close();
+        }
+    }
+}
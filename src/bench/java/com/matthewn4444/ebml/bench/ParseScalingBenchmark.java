@@ -0,0 +1,113 @@
+package com.matthewn4444.ebml.bench;
+
+import com.matthewn4444.ebml.EBMLReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the header, tracks, cues and attachments of N files on 1 up to N threads, one reader per
+ * file, and prints the files parsed per second for each thread count. Readers share no lock, so
+ * the throughput should scale with the amount of cores till the disk is the limit.
+ *
+ * Usage:
+ *      java ParseScalingBenchmark [-rounds R] [-threads T] file1.mkv file2.mkv ...
+ *
+ * The files are parsed R times (default 5) to warm up, then each thread count runs R rounds and
+ * the best is printed.
+ * The thread counts are powers of two up to T, which defaults to the amount of files.
+ */
+public class ParseScalingBenchmark {
+    public static void main(String[] args) throws Exception {
+        int rounds = 5;
+        int maxThreads = 0;
+        final List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-threads")) {
+                maxThreads = Integer.parseInt(args[++i]);
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty()) {
+            System.err.println("Usage: ParseScalingBenchmark [-rounds R] [-threads T] files...");
+            System.exit(1);
+        }
+        if (maxThreads <= 0) {
+            maxThreads = paths.size();
+        }
+        System.out.println(paths.size() + " files, " + Runtime.getRuntime().availableProcessors()
+                + " cores");
+
+        ExecutorService warmUp = Executors.newSingleThreadExecutor();
+        try {
+            for (int r = 0; r < rounds; r++) {
+                run(warmUp, paths);
+            }
+        } finally {
+            warmUp.shutdown();
+        }
+
+        double single = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                long best = Long.MAX_VALUE;
+                for (int r = 0; r < rounds; r++) {
+                    long start = System.nanoTime();
+                    run(executor, paths);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                double filesPerSecond = paths.size() * 1e9 / best;
+                if (threads == 1) {
+                    single = filesPerSecond;
+                }
+                System.out.printf("%3d threads: %10.1f files/s  %5.2fx%n", threads,
+                        filesPerSecond, filesPerSecond / single);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private static void run(ExecutorService executor, List<String> paths)
+            throws InterruptedException, ExecutionException {
+        List<Future<Integer>> results = new ArrayList<>(paths.size());
+        for (final String path : paths) {
+            results.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    return parse(path);
+                }
+            }));
+        }
+        for (Future<Integer> result : results) {
+            result.get();
+        }
+    }
+
+    private static int parse(String path) throws IOException {
+        EBMLReader reader = new EBMLReader(path);
+        try {
+            if (!reader.readHeader()) {
+                throw new IOException(path + " is not an mkv file");
+            }
+            reader.readTracks();
+            reader.readCues();
+            if (reader.hasAttachments()) {
+                reader.readAttachments();
+            }
+            return reader.getCuesCount();
+        } finally {
+            reader.close();
+        }
+    }
+}
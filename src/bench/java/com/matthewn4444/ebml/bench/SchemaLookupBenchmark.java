@@ -0,0 +1,171 @@
+package com.matthewn4444.ebml.bench;
+
+import com.matthewn4444.ebml.Cues;
+import com.matthewn4444.ebml.EBMLReader;
+import com.matthewn4444.ebml.elements.EBMLCursor;
+import com.matthewn4444.ebml.io.EBMLSource;
+import com.matthewn4444.ebml.io.RandomAccessFileSource;
+import com.matthewn4444.ebml.node.IntNode;
+import com.matthewn4444.ebml.node.LongNode;
+import com.matthewn4444.ebml.node.MasterNode;
+import com.matthewn4444.ebml.node.NodeBase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compares looking up the schema node of each element in the cues of a file with the table in
+ * MasterNode against a HashMap with boxed ids, which is how the nodes used to be looked up. The
+ * ids of the cues are read from the file once and then looked up in both, a hash map lookup
+ * does containsKey() and get() like the parser did. The time per lookup is printed.
+ *
+ * Usage:
+ *      java SchemaLookupBenchmark [-rounds R] file.mkv
+ *
+ * Use a file with large cues. Both ways run R rounds (default 200) after R rounds to warm up, the
+ * best is printed.
+ */
+public class SchemaLookupBenchmark {
+    private static final int LEVELS = 3;
+
+    // Same schema as the cues in both forms, by depth inside the cues element
+    private static final MasterNode[] sNodes = new MasterNode[LEVELS];
+    private static final List<HashMap<Integer, NodeBase>> sMaps =
+            new ArrayList<HashMap<Integer, NodeBase>>(LEVELS);
+
+    private static int[] sIds = new int[1024];
+    private static int[] sLevels = new int[1024];
+    private static int sCount;
+
+    static {
+        sNodes[0] = new MasterNode(Cues.ID);
+        sNodes[1] = new MasterNode(Cues.POINT);
+        sNodes[2] = new MasterNode(Cues.TRACK_POSITIONS);
+        for (int i = 0; i < LEVELS; i++) {
+            sMaps.add(new HashMap<Integer, NodeBase>());
+        }
+        add(0, sNodes[1]);
+        add(1, new IntNode(Cues.TIME));
+        add(1, sNodes[2]);
+        add(2, new IntNode(Cues.TRACK));
+        add(2, new LongNode(Cues.CLUSTER_POSITION));
+        add(2, new IntNode(Cues.RELATIVE_POSITION));
+        add(2, new IntNode(Cues.DURATION));
+        add(2, new IntNode(Cues.BLOCK_NUMBER));
+        add(2, new IntNode(Cues.CODEC_STATE));
+    }
+
+    private static void add(int level, NodeBase node) {
+        sNodes[level].addNode(node);
+        sMaps.get(level).put(node.id(), node);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = 200;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else {
+                path = args[i];
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: SchemaLookupBenchmark [-rounds R] file.mkv");
+            System.exit(1);
+        }
+        readCueIds(path);
+        System.out.println(sCount + " elements in the cues");
+
+        // Alternate the two ways each round so both are measured under the same conditions
+        long bestTable = Long.MAX_VALUE;
+        long bestHashMap = Long.MAX_VALUE;
+        int foundTable = 0;
+        int foundHashMap = 0;
+        for (int r = 0; r < rounds * 2; r++) {
+            long start = System.nanoTime();
+            foundTable = lookUpTable();
+            long middle = System.nanoTime();
+            foundHashMap = lookUpHashMap();
+            long end = System.nanoTime();
+            if (r >= rounds) {
+                bestTable = Math.min(bestTable, middle - start);
+                bestHashMap = Math.min(bestHashMap, end - middle);
+            }
+        }
+        System.out.printf("MasterNode %7.2f ns/lookup  (%d found)%n",
+                (double) bestTable / sCount, foundTable);
+        System.out.printf("HashMap    %7.2f ns/lookup  (%d found)%n",
+                (double) bestHashMap / sCount, foundHashMap);
+    }
+
+    private static int lookUpTable() {
+        int found = 0;
+        for (int i = 0; i < sCount; i++) {
+            if (sNodes[sLevels[i]].getNode(sIds[i]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static int lookUpHashMap() {
+        int found = 0;
+        for (int i = 0; i < sCount; i++) {
+            HashMap<Integer, NodeBase> map = sMaps.get(sLevels[i]);
+            if (map.containsKey(sIds[i]) && map.get(sIds[i]) != null) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static void readCueIds(String path) throws IOException {
+        EBMLReader reader = new EBMLReader(path);
+        long cuesPosition;
+        try {
+            if (!reader.readHeader()) {
+                throw new IOException(path + " is not an mkv file");
+            }
+            cuesPosition = reader.getCuesPosition();
+        } finally {
+            reader.close();
+        }
+        if (cuesPosition <= 0) {
+            throw new IOException(path + " has no cues");
+        }
+
+        EBMLSource source = new RandomAccessFileSource(path);
+        try {
+            source.seek(cuesPosition);
+            EBMLCursor cursor = new EBMLCursor(source);
+            if (!cursor.next() || cursor.id() != Cues.ID) {
+                throw new IOException("Cues are not at 0x" + Long.toHexString(cuesPosition));
+            }
+            cursor.enter();
+            readIds(cursor, 0);
+            cursor.exit();
+        } finally {
+            source.close();
+        }
+    }
+
+    private static void readIds(EBMLCursor cursor, int level) throws IOException {
+        while (cursor.next()) {
+            if (sCount == sIds.length) {
+                sIds = Arrays.copyOf(sIds, sCount * 2);
+                sLevels = Arrays.copyOf(sLevels, sCount * 2);
+            }
+            sIds[sCount] = cursor.id();
+            sLevels[sCount++] = level;
+            if (level + 1 < LEVELS && sNodes[level + 1].id() == cursor.id()) {
+                cursor.enter();
+                readIds(cursor, level + 1);
+                cursor.exit();
+            }
+        }
+    }
+}
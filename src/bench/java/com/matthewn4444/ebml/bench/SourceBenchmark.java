@@ -0,0 +1,80 @@
+package com.matthewn4444.ebml.bench;
+
+import com.matthewn4444.ebml.Attachments;
+import com.matthewn4444.ebml.EBMLReader;
+
+import java.io.IOException;
+
+/**
+ * Compares reading a file through RandomAccessFile with reading it from memory mapped windows.
+ * Each round opens the file, reads the header, tracks, cues and the data of every attachment and
+ * then all the subtitles, the time of both parts is printed for each way of reading.
+ *
+ * Usage:
+ *      java SourceBenchmark [-rounds R] file.mkv
+ *
+ * The file should already be in the page cache, run it twice to be sure. Each way runs R rounds
+ * (default 10) after R rounds to warm up, the best is printed.
+ */
+public class SourceBenchmark {
+    private static long sIndexNanos;
+    private static long sSubtitlesNanos;
+
+    public static void main(String[] args) throws Exception {
+        int rounds = 10;
+        String path = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-rounds")) {
+                rounds = Integer.parseInt(args[++i]);
+            } else {
+                path = args[i];
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: SourceBenchmark [-rounds R] file.mkv");
+            System.exit(1);
+        }
+
+        for (int mapped = 0; mapped < 2; mapped++) {
+            for (int r = 0; r < rounds; r++) {
+                run(path, mapped == 1);
+            }
+            long bestIndex = Long.MAX_VALUE;
+            long bestSubtitles = Long.MAX_VALUE;
+            for (int r = 0; r < rounds; r++) {
+                run(path, mapped == 1);
+                bestIndex = Math.min(bestIndex, sIndexNanos);
+                bestSubtitles = Math.min(bestSubtitles, sSubtitlesNanos);
+            }
+            System.out.printf("%-16s index %9.3f ms  subtitles %9.3f ms%n",
+                    mapped == 1 ? "memory mapped" : "RandomAccessFile", bestIndex / 1e6,
+                    bestSubtitles / 1e6);
+        }
+    }
+
+    private static void run(String path, boolean mapped) throws IOException {
+        long start = System.nanoTime();
+        EBMLReader reader = mapped ? EBMLReader.openMemoryMapped(path) : new EBMLReader(path);
+        try {
+            if (!reader.readHeader()) {
+                throw new IOException(path + " is not an mkv file");
+            }
+            reader.readTracks();
+            reader.readCues();
+            if (reader.hasAttachments()) {
+                reader.readAttachments();
+                for (Attachments.FileAttachment attachment : reader.getAttachments()) {
+                    attachment.getData();
+                }
+            }
+            long indexed = System.nanoTime();
+            for (int i = 0; i < reader.getCuesCount(); i++) {
+                reader.readSubtitlesInCueFrame(i);
+            }
+            sIndexNanos = indexed - start;
+            sSubtitlesNanos = System.nanoTime() - indexed;
+        } finally {
+            reader.close();
+        }
+    }
+}
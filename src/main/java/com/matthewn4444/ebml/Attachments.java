@@ -2,13 +2,13 @@ package com.matthewn4444.ebml;
 
 import com.matthewn4444.ebml.elements.ByteElement;
 import com.matthewn4444.ebml.elements.MasterElement;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.ByteNode;
 import com.matthewn4444.ebml.node.LongNode;
 import com.matthewn4444.ebml.node.MasterNode;
 import com.matthewn4444.ebml.node.StringNode;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 
 public class Attachments {
@@ -24,7 +24,7 @@ public class Attachments {
     static final MasterNode HEADER = new MasterNode(ID);
     static final MasterNode ATTACHED_FILE_NODE = new MasterNode(ATTACHED_FILE);
 
-    static void init() {
+    static {
         HEADER.addNode(ATTACHED_FILE_NODE);
 
         ATTACHED_FILE_NODE.addNode(new StringNode(FILE_DESCRIPTION));
@@ -37,21 +37,15 @@ public class Attachments {
     private Attachments() {}
 
     public static class FileAttachment {
-        private final String mDescription;
-        private final String mName;
-        private final String mMimeType;
-        private final RandomAccessFile mRaf;
-        private final long mDataLength;
-        private final long mDataPosition;
+        private final MasterElement mElement;
+        private final EBMLSource mSource;
 
-        FileAttachment(MasterElement element, RandomAccessFile raf) throws UnsupportedEncodingException {
-            mDescription = element.getValueString(FILE_DESCRIPTION);
-            mName = element.getValueString(FILE_NAME);
-            mMimeType = element.getValueString(FILE_MIME_TYPE);
-            ByteElement byteEl = element.getByteElement(FILE_DATA);
-            mDataPosition = byteEl.getPosition();
-            mDataLength = byteEl.getLength();
-            mRaf = raf;
+        /**
+         * The element can be lazily parsed, its values are only read when they are asked for
+         */
+        FileAttachment(MasterElement element, EBMLSource source) {
+            mElement = element;
+            mSource = source;
         }
 
         /**
@@ -59,7 +53,7 @@ public class Attachments {
          * @return description
          */
         public String getDescription() {
-            return mDescription;
+            return getString(FILE_DESCRIPTION);
         }
 
         /**
@@ -67,7 +61,7 @@ public class Attachments {
          * @return name
          */
         public String getName() {
-            return mName;
+            return getString(FILE_NAME);
         }
 
         /**
@@ -75,7 +69,7 @@ public class Attachments {
          * @return mime type
          */
         public String getMimeType() {
-            return mMimeType;
+            return getString(FILE_MIME_TYPE);
         }
 
         /**
@@ -84,13 +78,17 @@ public class Attachments {
          * @throws IOException
          */
         public byte[] getData() throws IOException {
-            synchronized (mRaf) {
-                long oldPointer = mRaf.getFilePointer();
-                mRaf.seek(mDataPosition);
-                byte[] buffer = new byte[(int) mDataLength];
-                mRaf.read(buffer);
-                mRaf.seek(oldPointer);
-                return buffer;
+            ByteElement byteEl = mElement.getByteElement(FILE_DATA);
+            byte[] buffer = new byte[(int) byteEl.getLength()];
+            mSource.readFully(byteEl.getPosition(), buffer, 0, buffer.length);
+            return buffer;
+        }
+
+        private String getString(int id) {
+            try {
+                return mElement.getValueString(id);
+            } catch (UnsupportedEncodingException e) {
+                throw new EBMLException("Unable to read attachment string", e);
             }
         }
     }
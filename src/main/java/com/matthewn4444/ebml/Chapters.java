@@ -1,9 +1,76 @@
 package com.matthewn4444.ebml;
 
+import com.matthewn4444.ebml.node.ByteNode;
+import com.matthewn4444.ebml.node.IntNode;
+import com.matthewn4444.ebml.node.LongNode;
+import com.matthewn4444.ebml.node.MasterNode;
+import com.matthewn4444.ebml.node.StringNode;
+
 public class Chapters {
     public static final int ID = 0x1043A770;
+    public static final int EDITION_ENTRY = 0x45B9;
+
+    // Edition Values
+    public static final int EDITION_UID = 0x45BC;
+    public static final int EDITION_FLAG_HIDDEN = 0x45BD;
+    public static final int EDITION_FLAG_DEFAULT = 0x45DB;
+    public static final int EDITION_FLAG_ORDERED = 0x45DD;
+    public static final int ATOM = 0xB6;
+
+    // Chapter Atom Values
+    public static final int UID = 0x73C4;
+    public static final int STRING_UID = 0x5654;
+    public static final int TIME_START = 0x91;
+    public static final int TIME_END = 0x92;
+    public static final int FLAG_HIDDEN = 0x98;
+    public static final int FLAG_ENABLED = 0x4598;
+    public static final int SEGMENT_UID = 0x6E67;
+    public static final int SEGMENT_EDITION_UID = 0x6EBC;
+    public static final int PHYSICAL_EQUIV = 0x63C3;
+    public static final int TRACK = 0x8F;
+    public static final int TRACK_NUMBER = 0x89;
+    public static final int DISPLAY = 0x80;
+
+    // Chapter Display Values
+    public static final int STRING = 0x85;
+    public static final int LANGUAGE = 0x437C;
+    public static final int COUNTRY = 0x437E;
+
+    static final MasterNode HEADER = new MasterNode(ID);
+    static final MasterNode EDITION_NODE = new MasterNode(EDITION_ENTRY);
+    static final MasterNode ATOM_NODE = new MasterNode(ATOM);
+    static final MasterNode TRACK_NODE = new MasterNode(TRACK);
+    static final MasterNode DISPLAY_NODE = new MasterNode(DISPLAY);
+
+    static {
+        HEADER.addNode(EDITION_NODE);
+
+        EDITION_NODE.addNode(new LongNode(EDITION_UID));
+        EDITION_NODE.addNode(new IntNode(EDITION_FLAG_HIDDEN));
+        EDITION_NODE.addNode(new IntNode(EDITION_FLAG_DEFAULT));
+        EDITION_NODE.addNode(new IntNode(EDITION_FLAG_ORDERED));
+        EDITION_NODE.addNode(ATOM_NODE);
+
+        // Chapters can be nested
+        ATOM_NODE.addNode(ATOM_NODE);
+        ATOM_NODE.addNode(new LongNode(UID));
+        ATOM_NODE.addNode(new StringNode(STRING_UID));
+        ATOM_NODE.addNode(new LongNode(TIME_START));
+        ATOM_NODE.addNode(new LongNode(TIME_END));
+        ATOM_NODE.addNode(new IntNode(FLAG_HIDDEN));
+        ATOM_NODE.addNode(new IntNode(FLAG_ENABLED, 1));
+        ATOM_NODE.addNode(new ByteNode(SEGMENT_UID));
+        ATOM_NODE.addNode(new LongNode(SEGMENT_EDITION_UID));
+        ATOM_NODE.addNode(new IntNode(PHYSICAL_EQUIV));
+        ATOM_NODE.addNode(TRACK_NODE);
+        ATOM_NODE.addNode(DISPLAY_NODE);
+
+        TRACK_NODE.addNode(new LongNode(TRACK_NUMBER));
 
-    // TODO implement this
+        DISPLAY_NODE.addNode(new StringNode(STRING));
+        DISPLAY_NODE.addNode(new StringNode(LANGUAGE, "eng"));
+        DISPLAY_NODE.addNode(new StringNode(COUNTRY));
+    }
 
     private Chapters() {}
 }
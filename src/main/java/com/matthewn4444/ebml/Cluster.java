@@ -1,11 +1,10 @@
 package com.matthewn4444.ebml;
 
-import java.util.ArrayList;
-
 import com.matthewn4444.ebml.node.BlockNode;
+import com.matthewn4444.ebml.node.ByteNode;
 import com.matthewn4444.ebml.node.IntNode;
+import com.matthewn4444.ebml.node.LongNode;
 import com.matthewn4444.ebml.node.MasterNode;
-import com.matthewn4444.ebml.node.StringNode;
 
 public class Cluster {
     public static final int ID = 0x1F43B675;
@@ -23,53 +22,49 @@ public class Cluster {
     public static final int REFERENCE_BLOCK = 0xFB;
     public static final int CODEC_STATE = 0xA4;
     public static final int BLOCK_ID = 0xA1;
+    public static final int REFERENCE_VIRTUAL = 0xFD;
+    public static final int DISCARD_PADDING = 0x75A2;
+    public static final int BLOCK_ADDITIONS = 0x75A1;
 
+    // Block Additions Values
+    public static final int BLOCK_MORE = 0xA6;
+    public static final int BLOCK_ADD_ID = 0xEE;
+    public static final int BLOCK_ADDITIONAL = 0xA5;
 
-    static final MasterNode ENTRY = new MasterNode(ID);
-    static final MasterNode BLOCK_GROUP_NODE = new MasterNode(BLOCK_GROUP);
-
-    final static class Entry {
-        int mTimecode;
-        int mNextTimecode;
-        long mStartAddress;
-        long mEndAddress;
-        int mRelativePosition;
-        boolean mHasParsed;
-
-        ArrayList<Entry> mSubEntries;
-
-        public Entry(int timecode, long startAddress) {
-            this(timecode, startAddress, 0);
-        }
+    // Silent Tracks Values
+    public static final int SILENT_TRACKS = 0x5854;
+    public static final int SILENT_TRACK_NUMBER = 0x58D7;
 
-        public Entry(int timecode, long startAddress, int relativePosition) {
-            mTimecode = timecode;
-            mStartAddress = startAddress;
-            mRelativePosition = relativePosition;
-            mEndAddress = 0;
-            mNextTimecode = 0;
-        }
 
-        public void addSubtitle(Entry entry) {
-            if (mSubEntries == null) {
-                mSubEntries = new ArrayList<>();
-            }
-            mSubEntries.add(entry);
-        }
-    }
+    static final MasterNode ENTRY = new MasterNode(ID);
+    static final MasterNode BLOCK_GROUP_NODE = new MasterNode(BLOCK_GROUP);
+    static final MasterNode BLOCK_ADDITIONS_NODE = new MasterNode(BLOCK_ADDITIONS);
+    static final MasterNode BLOCK_MORE_NODE = new MasterNode(BLOCK_MORE);
+    static final MasterNode SILENT_TRACKS_NODE = new MasterNode(SILENT_TRACKS);
 
-    static void init() {
+    static {
         ENTRY.addNode(new IntNode(TIMECODE));
         ENTRY.addNode(new IntNode(POSITION));
         ENTRY.addNode(new IntNode(PREVIOUS_SIZE));
         ENTRY.addNode(new BlockNode(SIMPLE_BLOCK));
         ENTRY.addNode(BLOCK_GROUP_NODE);
+        ENTRY.addNode(SILENT_TRACKS_NODE);
+
+        SILENT_TRACKS_NODE.addNode(new IntNode(SILENT_TRACK_NUMBER));
 
         BLOCK_GROUP_NODE.addNode(new IntNode(BLOCK_DURATION));
         BLOCK_GROUP_NODE.addNode(new IntNode(REFERENCE_PRIORITY));
-        BLOCK_GROUP_NODE.addNode(new IntNode(REFERENCE_BLOCK));
-        BLOCK_GROUP_NODE.addNode(new StringNode(CODEC_STATE));
+        BLOCK_GROUP_NODE.addNode(new IntNode(REFERENCE_BLOCK, 0, true));
+        BLOCK_GROUP_NODE.addNode(new ByteNode(CODEC_STATE));
         BLOCK_GROUP_NODE.addNode(new BlockNode(BLOCK_ID));
+        BLOCK_GROUP_NODE.addNode(new LongNode(REFERENCE_VIRTUAL, 0, true));
+        BLOCK_GROUP_NODE.addNode(new LongNode(DISCARD_PADDING, 0, true));
+        BLOCK_GROUP_NODE.addNode(BLOCK_ADDITIONS_NODE);
+
+        BLOCK_ADDITIONS_NODE.addNode(BLOCK_MORE_NODE);
+
+        BLOCK_MORE_NODE.addNode(new IntNode(BLOCK_ADD_ID, 1));
+        BLOCK_MORE_NODE.addNode(new ByteNode(BLOCK_ADDITIONAL));
     }
 
     private Cluster() {}
@@ -0,0 +1,149 @@
+package com.matthewn4444.ebml;
+
+import com.matthewn4444.ebml.elements.BlockElement;
+import com.matthewn4444.ebml.elements.EBMLEventParser;
+import com.matthewn4444.ebml.io.EBMLSource;
+import com.matthewn4444.ebml.subtitles.Subtitles;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the subtitle block groups of clusters straight into their subtitle tracks as the clusters
+ * are scanned, without keeping a tree of the cluster. Simple blocks are ignored since they have no
+ * duration. When collecting, the subtitles are kept as pending captions instead so that clusters
+ * can be scanned on other threads and appended later in order.
+ */
+class ClusterSubtitlesParser extends EBMLEventParser.DefaultHandler {
+    private final EBMLEventParser mParser = new EBMLEventParser(this);
+    private final List<Subtitles> mSubtitles;
+    private final ArrayList<PendingCaption> mPending;
+
+    /**
+     * A subtitle block that was read but not appended to its track yet
+     */
+    static final class PendingCaption {
+        final Subtitles mSubtitles;
+        final BlockElement mBlock;
+        final int mClusterTimecode;
+        final int mDuration;
+
+        PendingCaption(Subtitles subtitles, BlockElement block, int clusterTimecode,
+                       int duration) {
+            mSubtitles = subtitles;
+            mBlock = block;
+            mClusterTimecode = clusterTimecode;
+            mDuration = duration;
+        }
+
+        int getStartTime() {
+            return mClusterTimecode + mBlock.getTimecode();
+        }
+
+        void append() {
+            mSubtitles.appendBlock(mBlock, mClusterTimecode, mDuration);
+        }
+    }
+
+    private int mClusterTimecode;
+    private boolean mInBlockGroup;
+    private Subtitles mGroupSubtitles;
+    private BlockElement mGroupBlock;
+    private int mGroupDuration;
+    private boolean mAppended;
+
+    ClusterSubtitlesParser(List<Subtitles> subtitles) {
+        this(subtitles, false);
+    }
+
+    /**
+     * @param subtitles tracks to sort the blocks into
+     * @param collect true to keep the subtitles as pending captions instead of appending them
+     */
+    ClusterSubtitlesParser(List<Subtitles> subtitles, boolean collect) {
+        mSubtitles = subtitles;
+        mPending = collect ? new ArrayList<PendingCaption>() : null;
+    }
+
+    /**
+     * Parse the cluster at the current position of the source
+     * @param source to read from
+     * @return false if there is no cluster at this position
+     * @throws IOException
+     */
+    boolean parse(EBMLSource source) throws IOException {
+        mAppended = false;
+        return mParser.parse(source, Cluster.ENTRY);
+    }
+
+    /**
+     * Get the captions collected so far in the order they were read
+     * @return the pending captions, this list is kept by the parser
+     */
+    List<PendingCaption> getPending() {
+        return mPending;
+    }
+
+    /**
+     * Check if the last parsed cluster had any subtitles
+     * @return if subtitles were appended
+     */
+    boolean hasAppended() {
+        return mAppended;
+    }
+
+    @Override
+    public boolean onMasterStart(int id, long position, long size) throws IOException {
+        if (id == Cluster.ID) {
+            mClusterTimecode = 0;
+        } else if (id == Cluster.BLOCK_GROUP) {
+            mInBlockGroup = true;
+            mGroupSubtitles = null;
+            mGroupBlock = null;
+            mGroupDuration = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public void onMasterEnd(int id) throws IOException {
+        if (id == Cluster.BLOCK_GROUP) {
+            mInBlockGroup = false;
+            if (mGroupBlock != null) {
+                if (mPending != null) {
+                    mPending.add(new PendingCaption(mGroupSubtitles, mGroupBlock,
+                            mClusterTimecode, mGroupDuration));
+                } else {
+                    mGroupSubtitles.appendBlock(mGroupBlock, mClusterTimecode, mGroupDuration);
+                }
+                mAppended = true;
+                mGroupBlock = null;
+            }
+        }
+    }
+
+    @Override
+    public void onUnsigned(int id, long value) throws IOException {
+        if (id == Cluster.TIMECODE) {
+            mClusterTimecode = (int) value;
+        } else if (id == Cluster.BLOCK_DURATION) {
+            mGroupDuration = (int) value;
+        }
+    }
+
+    @Override
+    public void onBlock(int track, int timecode, int flags, long position, long length)
+            throws IOException {
+        if (!mInBlockGroup) {
+            return;
+        }
+        for (int i = 0; i < mSubtitles.size(); i++) {
+            if (mSubtitles.get(i).getTrackNumber() == track) {
+                mGroupSubtitles = mSubtitles.get(i);
+                mGroupBlock = mParser.currentBlock();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.matthewn4444.ebml;
+
+import com.matthewn4444.ebml.elements.ByteElement;
+import com.matthewn4444.ebml.elements.ElementBase;
+import com.matthewn4444.ebml.elements.MasterElement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Undoes the content encodings of a track on its frame data. Supports zlib compression and header
+ * stripping, encodings that only apply to the codec private data are ignored.
+ * Inflaters are shared by all decoders in a small pool and each thread reuses its own output
+ * buffer, so decoding many frames does not allocate native zlib memory for each of them.
+ * This is thread safe.
+ */
+public final class ContentDecoder {
+    public static final int ALGO_ZLIB = 0;
+    public static final int ALGO_BZLIB = 1;
+    public static final int ALGO_LZO = 2;
+    public static final int ALGO_HEADER_STRIPPING = 3;
+
+    private static final int SCOPE_FRAMES = 1;
+    private static final int TYPE_COMPRESSION = 0;
+
+    private static final int MAX_POOLED_INFLATERS = 4;
+    private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+    // Larger output buffers are not kept so a single large frame does not hold on to the memory
+    private static final int MAX_KEPT_BUFFER_SIZE = 256 * 1024;
+
+    private static final ArrayList<Inflater> sInflaterPool = new ArrayList<>();
+    private static final ThreadLocal<byte[]> sBuffer = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[INITIAL_BUFFER_SIZE];
+        }
+    };
+
+    private static final Comparator<MasterElement> DECODE_ORDER = new Comparator<MasterElement>() {
+        @Override
+        public int compare(MasterElement a, MasterElement b) {
+            // The highest order is undone first
+            int orderA = a.getValueInt(Tracks.CONTENT_ENCODING_ORDER);
+            int orderB = b.getValueInt(Tracks.CONTENT_ENCODING_ORDER);
+            return orderA > orderB ? -1 : (orderA == orderB ? 0 : 1);
+        }
+    };
+
+    // Steps in the order they are undone
+    private final int[] mAlgorithms;
+    private final byte[][] mSettings;
+    private final String mUnsupportedReason;
+
+    /**
+     * Create the decoder of a track from its entry in the tracks header
+     * Internal use only
+     * @param trackEntry entry of the track
+     * @return the decoder or null if the frames of the track are not encoded
+     * @throws IOException
+     */
+    public static ContentDecoder fromTrackEntry(MasterElement trackEntry) throws IOException {
+        MasterElement encodings = (MasterElement) trackEntry.getElement(
+                Tracks.CONTENT_ENCODINGS_ENTRY);
+        if (encodings == null) {
+            return null;
+        }
+        ArrayList<MasterElement> frameEncodings = new ArrayList<>();
+        for (ElementBase el : encodings.getElements(Tracks.CONTENT_ENCODING)) {
+            MasterElement encoding = (MasterElement) el;
+            if ((encoding.getValueInt(Tracks.CONTENT_ENCODING_SCOPE) & SCOPE_FRAMES) != 0) {
+                frameEncodings.add(encoding);
+            }
+        }
+        if (frameEncodings.isEmpty()) {
+            return null;
+        }
+        Collections.sort(frameEncodings, DECODE_ORDER);
+
+        int[] algorithms = new int[frameEncodings.size()];
+        byte[][] settings = new byte[frameEncodings.size()][];
+        String unsupportedReason = null;
+        for (int i = 0; i < frameEncodings.size(); i++) {
+            MasterElement encoding = frameEncodings.get(i);
+            MasterElement compression = (MasterElement) encoding.getElement(
+                    Tracks.CONTENT_COMPRESSION);
+            if (encoding.getValueInt(Tracks.CONTENT_ENCODING_TYPE) != TYPE_COMPRESSION
+                    || compression == null) {
+                unsupportedReason = "Encrypted content is not supported";
+                continue;
+            }
+            algorithms[i] = compression.getValueInt(Tracks.CONTENT_COMP_ALGO);
+            ByteElement settingsEl = compression.getByteElement(Tracks.CONTENT_COMP_SETTINGS);
+            settings[i] = settingsEl != null ? settingsEl.getData() : new byte[0];
+            if (algorithms[i] != ALGO_ZLIB && algorithms[i] != ALGO_HEADER_STRIPPING) {
+                unsupportedReason = "Compression algorithm " + algorithms[i]
+                        + " is not supported";
+            }
+        }
+        return new ContentDecoder(algorithms, settings, unsupportedReason);
+    }
+
+    private ContentDecoder(int[] algorithms, byte[][] settings, String unsupportedReason) {
+        mAlgorithms = algorithms;
+        mSettings = settings;
+        mUnsupportedReason = unsupportedReason;
+    }
+
+    /**
+     * Check if all the encodings can be undone
+     * @return if decode() can be used
+     */
+    public boolean isSupported() {
+        return mUnsupportedReason == null;
+    }
+
+    /**
+     * Get why the encodings cannot be undone
+     * @return the reason or null if they are supported
+     */
+    public String getUnsupportedReason() {
+        return mUnsupportedReason;
+    }
+
+    /**
+     * Undo the encodings of the frame data
+     * @param data of a frame
+     * @return decoded data, a new array
+     * @throws IOException if the data cannot be inflated
+     * @throws UnsupportedOperationException if the encodings are not supported
+     */
+    public byte[] decode(byte[] data) throws IOException {
+        if (mUnsupportedReason != null) {
+            throw new UnsupportedOperationException(mUnsupportedReason);
+        }
+        for (int i = 0; i < mAlgorithms.length; i++) {
+            if (mAlgorithms[i] == ALGO_ZLIB) {
+                data = inflate(data);
+            } else {
+                // Header stripping removed these bytes from the start of each frame
+                byte[] header = mSettings[i];
+                byte[] frame = new byte[header.length + data.length];
+                System.arraycopy(header, 0, frame, 0, header.length);
+                System.arraycopy(data, 0, frame, header.length, data.length);
+                data = frame;
+            }
+        }
+        return data;
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = obtainInflater();
+        try {
+            inflater.setInput(data);
+            byte[] buffer = sBuffer.get();
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    if (buffer.length <= MAX_KEPT_BUFFER_SIZE) {
+                        sBuffer.set(buffer);
+                    }
+                }
+                int count = inflater.inflate(buffer, length, buffer.length - length);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Compressed frame data is truncated");
+                }
+                length += count;
+            }
+            return Arrays.copyOf(buffer, length);
+        } catch (DataFormatException e) {
+            throw new IOException("Unable to inflate frame data", e);
+        } finally {
+            recycleInflater(inflater);
+        }
+    }
+
+    private static Inflater obtainInflater() {
+        synchronized (sInflaterPool) {
+            if (!sInflaterPool.isEmpty()) {
+                return sInflaterPool.remove(sInflaterPool.size() - 1);
+            }
+        }
+        return new Inflater();
+    }
+
+    private static void recycleInflater(Inflater inflater) {
+        inflater.reset();
+        synchronized (sInflaterPool) {
+            if (sInflaterPool.size() < MAX_POOLED_INFLATERS) {
+                sInflaterPool.add(inflater);
+                return;
+            }
+        }
+        // Release the native memory right away instead of waiting for the finalizer
+        inflater.end();
+    }
+}
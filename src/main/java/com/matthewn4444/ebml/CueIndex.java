@@ -0,0 +1,328 @@
+package com.matthewn4444.ebml;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Cue entries kept in parallel arrays. Each entry is a range of clusters starting at a video cue
+ * and can have subtitle entries from the cues that point into its clusters. The subtitle entries
+ * of all cue entries are kept in one set of arrays in order, entry i owns the subtitle entries
+ * from getSubEntryStart(i) to getSubEntryEnd(i). Subtitle entries can only be added to the last
+ * cue entry.
+ * The parsed state of the entries is guarded by this object so it can be read and changed from
+ * several threads, the rest is only changed while the entries are read or followed.
+ */
+final class CueIndex {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int mCount;
+    private int[] mTimecodes;
+    private int[] mNextTimecodes;
+    private long[] mStartAddresses;
+    private long[] mEndAddresses;
+    private final BitSet mParsed = new BitSet();
+
+    // Entries that a reader is parsing, they are not claimed again till they are released
+    private final BitSet mClaimed = new BitSet();
+
+    // Offset of the first subtitle entry of each cue entry, there is one more for the end
+    private int[] mSubStarts;
+
+    private int mSubCount;
+    private int[] mSubTimecodes;
+    private long[] mSubAddresses;
+    private int[] mSubRelativePositions;
+
+    CueIndex() {
+        mTimecodes = new int[INITIAL_CAPACITY];
+        mNextTimecodes = new int[INITIAL_CAPACITY];
+        mStartAddresses = new long[INITIAL_CAPACITY];
+        mEndAddresses = new long[INITIAL_CAPACITY];
+        mSubStarts = new int[INITIAL_CAPACITY + 1];
+        mSubTimecodes = new int[0];
+        mSubAddresses = new long[0];
+        mSubRelativePositions = new int[0];
+    }
+
+    int size() {
+        return mCount;
+    }
+
+    boolean isEmpty() {
+        return mCount == 0;
+    }
+
+    /**
+     * Add a cue entry at the end, its end address and next timecode are set with setEnd()
+     * @param timecode of the cue
+     * @param startAddress of the first cluster
+     * @return index of the entry
+     */
+    int add(int timecode, long startAddress) {
+        if (mCount == mTimecodes.length) {
+            int capacity = Math.max(mCount * 2, INITIAL_CAPACITY);
+            mTimecodes = Arrays.copyOf(mTimecodes, capacity);
+            mNextTimecodes = Arrays.copyOf(mNextTimecodes, capacity);
+            mStartAddresses = Arrays.copyOf(mStartAddresses, capacity);
+            mEndAddresses = Arrays.copyOf(mEndAddresses, capacity);
+            mSubStarts = Arrays.copyOf(mSubStarts, capacity + 1);
+        }
+        int index = mCount++;
+        mTimecodes[index] = timecode;
+        mStartAddresses[index] = startAddress;
+        mEndAddresses[index] = 0;
+        mNextTimecodes[index] = 0;
+        mSubStarts[mCount] = mSubCount;
+        return index;
+    }
+
+    void setEnd(int index, long endAddress, int nextTimecode) {
+        mEndAddresses[index] = endAddress;
+        mNextTimecodes[index] = nextTimecode;
+    }
+
+    void setEndAddress(int index, long endAddress) {
+        mEndAddresses[index] = endAddress;
+    }
+
+    int getTimecode(int index) {
+        return mTimecodes[index];
+    }
+
+    int getNextTimecode(int index) {
+        return mNextTimecodes[index];
+    }
+
+    long getStartAddress(int index) {
+        return mStartAddresses[index];
+    }
+
+    long getEndAddress(int index) {
+        return mEndAddresses[index];
+    }
+
+    synchronized boolean isParsed(int index) {
+        return mParsed.get(index);
+    }
+
+    synchronized void setParsed(int index) {
+        mParsed.set(index);
+        mClaimed.clear(index);
+    }
+
+    /**
+     * Claim an entry to parse it, finish with setParsed() or release()
+     * @param index of the entry
+     * @return false if the entry was parsed or another reader is parsing it
+     */
+    synchronized boolean claim(int index) {
+        if (mParsed.get(index) || mClaimed.get(index)) {
+            return false;
+        }
+        mClaimed.set(index);
+        return true;
+    }
+
+    /**
+     * Release a claimed entry that was not parsed so it can be claimed again
+     * @param index of the entry
+     */
+    synchronized void release(int index) {
+        mClaimed.clear(index);
+    }
+
+    /**
+     * Find the first entry from an index that was not parsed and is not being parsed
+     * @param from index to start at
+     * @return index of the entry or -1 if all entries from there were parsed or claimed
+     */
+    synchronized int nextUnparsed(int from) {
+        int index = from;
+        while (index < mCount) {
+            index = mParsed.nextClearBit(index);
+            if (!mClaimed.get(index)) {
+                break;
+            }
+            index++;
+        }
+        return index < mCount ? index : -1;
+    }
+
+    /**
+     * Add a subtitle entry to the last cue entry
+     * @param timecode of the subtitle cue
+     * @param address of the cluster with the subtitle
+     * @param relativePosition of the block group in the cluster
+     */
+    void addSubEntry(int timecode, long address, int relativePosition) {
+        if (mCount == 0) {
+            throw new IllegalStateException("There is no cue entry to add subtitles to");
+        }
+        if (mSubCount == mSubTimecodes.length) {
+            int capacity = Math.max(mSubCount * 2, INITIAL_CAPACITY);
+            mSubTimecodes = Arrays.copyOf(mSubTimecodes, capacity);
+            mSubAddresses = Arrays.copyOf(mSubAddresses, capacity);
+            mSubRelativePositions = Arrays.copyOf(mSubRelativePositions, capacity);
+        }
+        mSubTimecodes[mSubCount] = timecode;
+        mSubAddresses[mSubCount] = address;
+        mSubRelativePositions[mSubCount] = relativePosition;
+        mSubStarts[mCount] = ++mSubCount;
+    }
+
+    int getSubEntryCount() {
+        return mSubCount;
+    }
+
+    int getSubEntryStart(int index) {
+        return mSubStarts[index];
+    }
+
+    int getSubEntryEnd(int index) {
+        return mSubStarts[index + 1];
+    }
+
+    int getSubTimecode(int subIndex) {
+        return mSubTimecodes[subIndex];
+    }
+
+    long getSubAddress(int subIndex) {
+        return mSubAddresses[subIndex];
+    }
+
+    int getSubRelativePosition(int subIndex) {
+        return mSubRelativePositions[subIndex];
+    }
+
+    /**
+     * Find the first entry with a timecode that is not before the time
+     * @param time to search for
+     * @return index of the entry or the last index if all are before
+     */
+    int lowerBoundOfTime(int time) {
+        int low = 0;
+        int high = mCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mTimecodes[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Find the first entry with a start address that is not before the address
+     * @param address to search for
+     * @return index of the entry or the last index if all are before
+     */
+    int lowerBoundOfAddress(long address) {
+        int low = 0;
+        int high = mCount - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (mStartAddresses[mid] < address) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Write the entries and which ones were parsed so they can be read back with read()
+     * @param out stream to write to
+     * @throws IOException
+     */
+    synchronized void write(DataOutputStream out) throws IOException {
+        out.writeInt(mCount);
+        for (int i = 0; i < mCount; i++) {
+            out.writeInt(mTimecodes[i]);
+            out.writeInt(mNextTimecodes[i]);
+            out.writeLong(mStartAddresses[i]);
+            out.writeLong(mEndAddresses[i]);
+            out.writeInt(mSubStarts[i + 1]);
+        }
+        out.writeInt(mSubCount);
+        for (int i = 0; i < mSubCount; i++) {
+            out.writeInt(mSubTimecodes[i]);
+            out.writeLong(mSubAddresses[i]);
+            out.writeInt(mSubRelativePositions[i]);
+        }
+        out.writeInt(mParsed.cardinality());
+        for (int i = mParsed.nextSetBit(0); i >= 0; i = mParsed.nextSetBit(i + 1)) {
+            out.writeInt(i);
+        }
+    }
+
+    /**
+     * Read entries that were written with write()
+     * @param in stream to read from
+     * @return the entries
+     * @throws IOException if the data is not valid
+     */
+    static CueIndex read(DataInputStream in) throws IOException {
+        CueIndex index = new CueIndex();
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Invalid cue entry count " + count);
+        }
+        index.mTimecodes = new int[count];
+        index.mNextTimecodes = new int[count];
+        index.mStartAddresses = new long[count];
+        index.mEndAddresses = new long[count];
+        index.mSubStarts = new int[count + 1];
+        for (int i = 0; i < count; i++) {
+            index.mTimecodes[i] = in.readInt();
+            index.mNextTimecodes[i] = in.readInt();
+            index.mStartAddresses[i] = in.readLong();
+            index.mEndAddresses[i] = in.readLong();
+            index.mSubStarts[i + 1] = in.readInt();
+        }
+        index.mCount = count;
+
+        int subCount = in.readInt();
+        if (subCount < 0 || (count > 0 ? index.mSubStarts[count] : 0) != subCount) {
+            throw new IOException("Invalid subtitle entry count " + subCount);
+        }
+        index.mSubTimecodes = new int[subCount];
+        index.mSubAddresses = new long[subCount];
+        index.mSubRelativePositions = new int[subCount];
+        for (int i = 0; i < subCount; i++) {
+            index.mSubTimecodes[i] = in.readInt();
+            index.mSubAddresses[i] = in.readLong();
+            index.mSubRelativePositions[i] = in.readInt();
+        }
+        index.mSubCount = subCount;
+
+        int parsedCount = in.readInt();
+        for (int i = 0; i < parsedCount; i++) {
+            int parsed = in.readInt();
+            if (parsed < 0 || parsed >= count) {
+                throw new IOException("Invalid parsed cue entry " + parsed);
+            }
+            index.mParsed.set(parsed);
+        }
+        return index;
+    }
+
+    /**
+     * Release the spare capacity once no more entries are added
+     */
+    void trim() {
+        mTimecodes = Arrays.copyOf(mTimecodes, mCount);
+        mNextTimecodes = Arrays.copyOf(mNextTimecodes, mCount);
+        mStartAddresses = Arrays.copyOf(mStartAddresses, mCount);
+        mEndAddresses = Arrays.copyOf(mEndAddresses, mCount);
+        mSubStarts = Arrays.copyOf(mSubStarts, mCount + 1);
+        mSubTimecodes = Arrays.copyOf(mSubTimecodes, mSubCount);
+        mSubAddresses = Arrays.copyOf(mSubAddresses, mSubCount);
+        mSubRelativePositions = Arrays.copyOf(mSubRelativePositions, mSubCount);
+    }
+}
@@ -21,7 +21,7 @@ public class Cues {
     static final MasterNode POINT_NODE = new MasterNode(POINT);
     static final MasterNode TRACK_POSITION = new MasterNode(TRACK_POSITIONS);
 
-    static void init() {
+    static {
         HEADER.addNode(POINT_NODE);
 
         POINT_NODE.addNode(new IntNode(TIME));
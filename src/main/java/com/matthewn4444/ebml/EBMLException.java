@@ -6,4 +6,7 @@ public class EBMLException extends RuntimeException {
     public EBMLException(String message) {
         super(message);
     }
+    public EBMLException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
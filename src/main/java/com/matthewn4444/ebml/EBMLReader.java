@@ -4,22 +4,54 @@ import android.util.Log;
 
 import com.matthewn4444.ebml.Attachments.FileAttachment;
 import com.matthewn4444.ebml.elements.BlockElement;
+import com.matthewn4444.ebml.elements.EBMLCursor;
+import com.matthewn4444.ebml.elements.EBMLPath;
 import com.matthewn4444.ebml.elements.ElementBase;
 import com.matthewn4444.ebml.elements.IntElement;
 import com.matthewn4444.ebml.elements.LongElement;
 import com.matthewn4444.ebml.elements.MasterElement;
+import com.matthewn4444.ebml.elements.ParseProjection;
+import com.matthewn4444.ebml.io.ByteArraySource;
+import com.matthewn4444.ebml.io.EBMLSource;
+import com.matthewn4444.ebml.io.MappedFileSource;
+import com.matthewn4444.ebml.io.RandomAccessFileSource;
 import com.matthewn4444.ebml.node.IntNode;
 import com.matthewn4444.ebml.node.MasterNode;
 import com.matthewn4444.ebml.node.NodeBase;
 import com.matthewn4444.ebml.node.StringNode;
+import com.matthewn4444.ebml.subtitles.Caption;
 import com.matthewn4444.ebml.subtitles.Subtitles;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
 public class EBMLReader {
     private static final String TAG = "EBMLReader";
@@ -36,17 +68,36 @@ public class EBMLReader {
 
     public static final int NS_TO_MS = 1000000;
 
-    protected static MasterNode EBML_ROOT = new MasterNode(ID);
+    // Index files start with "EBMI" and the version, change the version when the layout changes
+    private static final int INDEX_MAGIC = 0x45424D49;
+    private static final int INDEX_VERSION = 1;
+    private static final int INDEX_KEY_LENGTH = 4 * 1024;
 
-    private static final Object InitLock = new Object();
+    // Amount of clusters indexed between checks when scanning all clusters for cue entries
+    private static final int CLUSTER_SCAN_BATCH = 256;
 
+    // Amount of cluster ranges for each thread when reading all subtitles in parallel
+    private static final int RANGES_PER_THREAD = 4;
+
+    protected static final MasterNode EBML_ROOT = new MasterNode(ID);
+
+    private static final EBMLPath SEEK_ENTRIES = EBMLPath.compile(Segment.SEEK);
+
+    protected final EBMLSource mSource;
+
+    /**
+     * The file given to or opened by the constructor, null when reading from any other source.
+     * Reads go through mSource and never move its file pointer.
+     * @deprecated read with mSource instead
+     */
+    @Deprecated
     protected final RandomAccessFile mRanAccFile;
+    private EBMLSource mClusterSource;
     protected final List<MasterElement> mSegmentHeaders = new ArrayList<>();
     private boolean mIsOpened;
 
     protected MasterElement mEmblHeader;
     protected MasterElement mInfoHeader;
-    protected MasterElement mCuesHeader;
     protected MasterElement mTracksHeader;
     protected MasterElement mAttachmentsHeader;
 
@@ -55,16 +106,23 @@ public class EBMLReader {
     protected ArrayList<Subtitles> mSubtitles;
     protected final Set<Integer> mSubtitleTrackNumbers = new HashSet<>();
 
+    // Content encodings of the tracks that have them, by track number
+    private final HashMap<Integer, ContentDecoder> mContentDecoders = new HashMap<>();
+
     protected ArrayList<FileAttachment> mAttachments;
 
     protected ArrayList<AudioTrack> mAudioTracks;
 
     // Keep track of all the video cues for getting subtitles
-    protected ArrayList<Cluster.Entry> mCueFrames;
+    protected CueIndex mCueFrames;
     protected boolean mHasCueSubtitlesPos;
 
-    // Read cluster faster by only parsing subtitle related elements
-    protected Set<Integer> mClusterBlockReadOnlyEl;
+    // Cue track positions of every track for seeking to keyframes
+    protected KeyframeIndex mKeyframes;
+
+    // Reads subtitles when scanning whole clusters, only used while holding the cluster source
+    private ClusterSubtitlesParser mClusterSubtitlesParser;
+    private ClusterSubtitlesParser mCancellableSubtitlesParser;
 
     protected float mDurationMs;
 
@@ -75,33 +133,36 @@ public class EBMLReader {
     protected long mInfoPosition;
     protected long mAttachmentsPosition;
 
+    // Positions of the seek entries by id, the first entry of an id is kept
+    private final HashMap<Integer, Long> mSeekPositions = new HashMap<>();
+    private int mSeekPositionsHeaderCount;
+
     protected long mTracksLength;
     protected long mAttachmentsLength;
     protected long mCuesLength;
     protected long mChaptersLength;
 
-    // Create the ebml tree to parse the file
-    private static void init() {
-        if (EBML_ROOT.getLookup().isEmpty()) {
-            synchronized (InitLock) {
-                if (EBML_ROOT.getLookup().isEmpty()) {
-                    EBML_ROOT.addNode(new IntNode(VERSION));
-                    EBML_ROOT.addNode(new IntNode(READ_VERSION));
-                    EBML_ROOT.addNode(new IntNode(MAX_ID_LENGTH));
-                    EBML_ROOT.addNode(new IntNode(MAX_SIZE_LENGTH));
-                    EBML_ROOT.addNode(new StringNode(DOC_TYPE));
-                    EBML_ROOT.addNode(new IntNode(DOC_VERSION));
-                    EBML_ROOT.addNode(new IntNode(DOC_READ_VERSION));
-
-                    Info.init();
-                    Segment.init();
-                    Cues.init();
-                    Tracks.init();
-                    Cluster.init();
-                    Attachments.init();
-                }
-            }
-        }
+    // Follow mode: position after the last complete cluster and the tracks to parse in clusters
+    protected long mFollowPosition;
+
+    // Cluster scan for files without cues: position of the next element to index, -1 when done
+    protected long mClusterScanPosition;
+    private ParseProjection mFollowProjection;
+
+    // Only reads the block and duration of block groups, used while holding the cluster source
+    private final ParseProjection mBlockGroupProjection = new ParseProjection.Builder()
+            .onlyIdsAtDepth(0, Cluster.BLOCK_ID, Cluster.BLOCK_DURATION)
+            .build();
+
+    // The ebml tree to parse the file, the schema of each section is built when its class loads
+    static {
+        EBML_ROOT.addNode(new IntNode(VERSION, 1));
+        EBML_ROOT.addNode(new IntNode(READ_VERSION, 1));
+        EBML_ROOT.addNode(new IntNode(MAX_ID_LENGTH, 4));
+        EBML_ROOT.addNode(new IntNode(MAX_SIZE_LENGTH, 8));
+        EBML_ROOT.addNode(new StringNode(DOC_TYPE));
+        EBML_ROOT.addNode(new IntNode(DOC_VERSION, 1));
+        EBML_ROOT.addNode(new IntNode(DOC_READ_VERSION, 1));
     }
 
     /**
@@ -111,9 +172,7 @@ public class EBMLReader {
      * @throws IOException
     */
     public EBMLReader(String path) throws IOException {
-        mIsOpened = true;
-        mHasCueSubtitlesPos = false;
-        mRanAccFile = new RandomAccessFile(path, "r");
+        this(new RandomAccessFile(path, "r"));
     }
 
     /**
@@ -122,17 +181,45 @@ public class EBMLReader {
      * @param randomAccessFile to be read
      */
     public EBMLReader(RandomAccessFile randomAccessFile) {
+        this(new RandomAccessFileSource(randomAccessFile, 0,
+                RandomAccessFileSource.DEFAULT_WINDOW_SIZE), randomAccessFile);
+    }
+
+    /**
+     * Pass a source of EBML data to be read.
+     * Please use close() later
+     * @param source to be read
+     */
+    public EBMLReader(EBMLSource source) {
+        this(source, null);
+    }
+
+    private EBMLReader(EBMLSource source, RandomAccessFile randomAccessFile) {
         mIsOpened = true;
+        mHasCueSubtitlesPos = false;
+        mSource = source;
         mRanAccFile = randomAccessFile;
     }
 
     /**
-     * Closes the RandomAccessFile, you will receive errors trying to read this file
+     * Open a file to read through memory mapped segments instead of file reads. Elements are then
+     * decoded from the page cache, which is faster for large files on fast storage.
+     * Please use close() later
+     * @param path file to open
+     * @return reader for this file
+     * @throws IOException
+     */
+    public static EBMLReader openMemoryMapped(String path) throws IOException {
+        return new EBMLReader(new MappedFileSource(path));
+    }
+
+    /**
+     * Closes the source, you will receive errors trying to read this file
      * @throws IOException
      */
     public void close() throws IOException {
         if (mIsOpened) {
-            mRanAccFile.close();
+            mSource.close();
             mIsOpened = false;
         }
     }
@@ -218,21 +305,22 @@ public class EBMLReader {
             return true;
         }
 
-        init();
         mSegmentHeaders.clear();
+        mSeekPositions.clear();
+        mSeekPositionsHeaderCount = 0;
         mEmblHeader = new MasterElement(EBML_ROOT, 0);
         mCuesPosition = 0;
         mChaptersPosition = 0;
 
         // Parse the header content
-        synchronized (mRanAccFile) {
-            mRanAccFile.seek(0);
-            if (!mEmblHeader.parse(mRanAccFile)) {
+        synchronized (mSource) {
+            mSource.seek(0);
+            if (!mEmblHeader.parse(mSource)) {
                 return false;
             }
 
             // See if segment is next
-            if (Segment.ID != mRanAccFile.readInt()) {
+            if (Segment.ID != mSource.readInt()) {
                 throw new EBMLParsingException("Segment does not follow the EBML header, is this a valid mkv?");
             }
 
@@ -240,8 +328,8 @@ public class EBMLReader {
             scanForId(Segment.SEEK_HEAD, 10);
 
             // Parse the segment information
-            mSegmentHeaders.add(new MasterElement(Segment.HEADER, mRanAccFile.getFilePointer()));
-            if (!mSegmentHeaders.get(0).parse(mRanAccFile)) {
+            mSegmentHeaders.add(new MasterElement(Segment.HEADER, mSource.position()));
+            if (!mSegmentHeaders.get(0).parse(mSource)) {
                 throw new EBMLParsingException("Unable to parse segment seek header properly");
             }
         }
@@ -249,10 +337,10 @@ public class EBMLReader {
         // Handle cases for segment info at the bottom of the file
         long seekHeaderPosition = findPositionFromSegmentEntry(Segment.SEEK_HEAD);
         if (seekHeaderPosition != 0) {
-            synchronized (mRanAccFile) {
-                mRanAccFile.seek(seekHeaderPosition);
+            synchronized (mSource) {
+                mSource.seek(seekHeaderPosition);
                 mSegmentHeaders.add(new MasterElement(Segment.HEADER, seekHeaderPosition));
-                if (!mSegmentHeaders.get(1).parse(mRanAccFile)) {
+                if (!mSegmentHeaders.get(1).parse(mSource)) {
                     throw new EBMLParsingException("Unable to parse segment seek header properly again");
                 }
             }
@@ -262,10 +350,10 @@ public class EBMLReader {
         if (mInfoHeader == null) {
             findInfoPosition();
 
-            synchronized (mRanAccFile) {
-                mRanAccFile.seek(mInfoPosition);
-                mInfoHeader = new MasterElement(Info.HEADER, mRanAccFile.getFilePointer());
-                if (!mInfoHeader.parse(mRanAccFile)) {
+            synchronized (mSource) {
+                mSource.seek(mInfoPosition);
+                mInfoHeader = new MasterElement(Info.HEADER, mSource.position());
+                if (!mInfoHeader.parse(mSource)) {
                     throw new EBMLParsingException("Unable to parse info properly");
                 }
             }
@@ -284,9 +372,9 @@ public class EBMLReader {
      */
     public long getTracksDataLength() throws IOException {
         findTracksPosition();
-        synchronized (mRanAccFile) {
-            mRanAccFile.seek(mTracksPosition);
-            if ((mTracksLength = MasterElement.parseUpToLength(mRanAccFile, Tracks.ID)) == 0) {
+        synchronized (mSource) {
+            mSource.seek(mTracksPosition);
+            if ((mTracksLength = MasterElement.parseUpToLength(mSource, Tracks.ID)) == 0) {
                 throw new EBMLParsingException("Getting tracks read length in the wrong location");
             }
         }
@@ -303,9 +391,9 @@ public class EBMLReader {
         if (mAttachmentsPosition == 0) {
             return 0;
         }
-        synchronized (mRanAccFile) {
-            mRanAccFile.seek(mAttachmentsPosition);
-            if ((mAttachmentsLength = MasterElement.parseUpToLength(mRanAccFile, Attachments.ID)) == 0) {
+        synchronized (mSource) {
+            mSource.seek(mAttachmentsPosition);
+            if ((mAttachmentsLength = MasterElement.parseUpToLength(mSource, Attachments.ID)) == 0) {
                 throw new EBMLParsingException("Getting attachments read length in the wrong location");
             }
         }
@@ -319,9 +407,9 @@ public class EBMLReader {
      */
     public long getCuesDataLength() throws IOException {
         findCuesPosition();
-        synchronized (mRanAccFile) {
-            mRanAccFile.seek(mCuesPosition);
-            if ((mCuesLength = MasterElement.parseUpToLength(mRanAccFile, Cues.ID)) == 0) {
+        synchronized (mSource) {
+            mSource.seek(mCuesPosition);
+            if ((mCuesLength = MasterElement.parseUpToLength(mSource, Cues.ID)) == 0) {
                 throw new EBMLParsingException("Getting cues read length in the wrong location");
             }
         }
@@ -335,9 +423,9 @@ public class EBMLReader {
      */
     public long getChaptersDataLength() throws IOException {
         findChaptersPosition();
-        synchronized (mRanAccFile) {
-            mRanAccFile.seek(mChaptersPosition);
-            if ((mChaptersLength = MasterElement.parseUpToLength(mRanAccFile, Chapters.ID)) == 0) {
+        synchronized (mSource) {
+            mSource.seek(mChaptersPosition);
+            if ((mChaptersLength = MasterElement.parseUpToLength(mSource, Chapters.ID)) == 0) {
                 throw new EBMLParsingException("Getting chapters read length in the wrong location");
             }
         }
@@ -356,10 +444,10 @@ public class EBMLReader {
         if (mTracksHeader == null) {
             findTracksPosition();
 
-            synchronized (mRanAccFile) {
-                mRanAccFile.seek(mTracksPosition);
-                mTracksHeader = new MasterElement(Tracks.HEADER, mRanAccFile.getFilePointer());
-                if (!mTracksHeader.parse(mRanAccFile)) {
+            synchronized (mSource) {
+                mSource.seek(mTracksPosition);
+                mTracksHeader = new MasterElement(Tracks.HEADER, mSource.position());
+                if (!mTracksHeader.parseLazily(mSource)) {
                     throw new EBMLParsingException("Unable to parse tracks properly");
                 }
 
@@ -367,35 +455,11 @@ public class EBMLReader {
                 mSubtitles = new ArrayList<>();
                 mAudioTracks = new ArrayList<>();
                 mSubtitleTrackNumbers.clear();
-                for (ElementBase el : mTracksHeader.getElements()) {
-                    MasterElement master = (MasterElement) el;
-                    int type = master.getValueInt(Tracks.TYPE);
-                    if (type == Tracks.Type.VIDEO) {
-                        mVideoTrackIndex = master.getValueInt(Tracks.NUMBER);
-                    } else if (type == Tracks.Type.SUBTITLE) {
-                        MasterElement masterSubTrack = (MasterElement) el;
-
-                        // Check to see if this subtitle element has compression
-                        boolean hasCompression = false;
-                        el = masterSubTrack.getElementFromPath(Tracks.CONTENT_ENCODINGS_ENTRY,
-                                Tracks.CONTENT_ENCODING, Tracks.CONTENT_COMPRESSION);
-                        if (el != null) {
-                            // We have compression in subtitles
-                            if (((MasterElement) el).getElements().size() > 0) {
-                                throw new UnsupportedOperationException("Have not implemented more complex compression for subtitles!");
-                            }
-                            hasCompression = true;
-                        }
-
-                        Subtitles subs = Subtitles.CreateSubsFromBlockGroup(masterSubTrack, hasCompression);
-                        assert (subs != null);
-                        mSubtitles.add(subs);
-                        mSubtitleTrackNumbers.add(subs.getTrackNumber());
-                    } else if (type == Tracks.Type.AUDIO) {
-                        AudioTrack audioTrack = AudioTrack.fromMasterTrackElement((MasterElement) el);
-                        assert (audioTrack != null);
-                        mAudioTracks.add(audioTrack);
-                    }
+                mContentDecoders.clear();
+                mVideoTrackIndex = readTrackEntries(mTracksHeader, mSubtitles, mAudioTracks,
+                        mContentDecoders);
+                for (Subtitles subs : mSubtitles) {
+                    mSubtitleTrackNumbers.add(subs.getTrackNumber());
                 }
             }
         }
@@ -404,6 +468,8 @@ public class EBMLReader {
     /**
      * Read the segment attachments
      * This will read the attachment data which you can get with getAttachments().
+     * Only the positions of the attachments are read here, each value is read the first time it
+     * is asked for so listing attachments does not read all of them.
      * @throws IOException
      */
     public void readAttachments() throws IOException {
@@ -414,19 +480,67 @@ public class EBMLReader {
                 return;
             }
 
-            synchronized (mRanAccFile) {
-                mRanAccFile.seek(mAttachmentsPosition);
-                mAttachmentsHeader = new MasterElement(Attachments.HEADER, mRanAccFile.getFilePointer());
-                if (!mAttachmentsHeader.parse(mRanAccFile)) {
+            synchronized (mSource) {
+                mSource.seek(mAttachmentsPosition);
+                mAttachmentsHeader = new MasterElement(Attachments.HEADER, mSource.position());
+                if (!mAttachmentsHeader.parseLazily(mSource)) {
                     throw new EBMLParsingException("Unable to parse attachments properly");
                 }
             }
 
             mAttachments = new ArrayList<>();
             for (ElementBase el : mAttachmentsHeader.getElements()) {
-                mAttachments.add(new FileAttachment((MasterElement) el, mRanAccFile));
+                mAttachments.add(new FileAttachment((MasterElement) el, mSource));
+            }
+        }
+    }
+
+    /**
+     * Read a top level element found from the seek head with only the children that the projection
+     * includes, such as the tracks, cues, attachments, chapters, tags or the first cluster. Use
+     * the projection to see how much was skipped.
+     * This is the only read method that takes a projection. readTracks(), readCues(),
+     * readAttachments() and the subtitle reads build the subtitle tracks, decoders, cue entries
+     * and attachments from specific children, so a projection from outside could leave them
+     * incomplete. They already skip what they do not use: tracks and attachments are parsed
+     * lazily, cues are walked with a cursor that only decodes the cue fields and clusters are
+     * read with projections of their own. Use this to read any of those elements partially.
+     * @param id of the element, for example Cues.ID
+     * @param projection of the children to read or null to read all
+     * @return the element or null if the file does not have it
+     * @throws IOException
+     */
+    public MasterElement readElement(int id, ParseProjection projection) throws IOException {
+        long position = findPositionFromSegmentEntry(id);
+        return position != 0 ? readElement(id, position, projection) : null;
+    }
+
+    /**
+     * Read a top level element at a position with only the children that the projection includes,
+     * use this to read clusters from the cue positions
+     * @param id of the element, for example Cluster.ID
+     * @param position of the element
+     * @param projection of the children to read or null to read all
+     * @return the element
+     * @throws IOException
+     */
+    public MasterElement readElement(int id, long position, ParseProjection projection)
+            throws IOException {
+        MasterNode schema = getTopLevelSchema(id);
+        if (schema == null) {
+            throw new IllegalArgumentException("Cannot read element with id 0x"
+                    + Integer.toHexString(id));
+        }
+        MasterElement element = new MasterElement(schema, position);
+        EBMLSource source = id == Cluster.ID ? getClusterSource() : mSource;
+        synchronized (source) {
+            source.seek(position);
+            if (!element.parse(source, projection)) {
+                throw new EBMLParsingException("Unable to parse element 0x"
+                        + Integer.toHexString(id) + " @ 0x" + Long.toHexString(position));
             }
         }
+        return element;
     }
 
     /**
@@ -457,7 +571,7 @@ public class EBMLReader {
      * @return start address
      */
     public long getCueStartAddress(int index) {
-        return mCueFrames.get(index).mStartAddress;
+        return mCueFrames.getStartAddress(index);
     }
 
     /**
@@ -466,7 +580,7 @@ public class EBMLReader {
      * @return end address
      */
     public long getCueEndAddress(int index) {
-        return mCueFrames.get(index).mEndAddress;
+        return mCueFrames.getEndAddress(index);
     }
 
     /**
@@ -475,7 +589,7 @@ public class EBMLReader {
      * @return start time
      */
     public int getCueTimecode(int index) {
-        return mCueFrames.get(index).mTimecode;
+        return mCueFrames.getTimecode(index);
     }
 
     /**
@@ -484,7 +598,7 @@ public class EBMLReader {
      * @return next time code
      */
     public int getCueEndTimecode(int index) {
-        return mCueFrames.get(index).mNextTimecode;
+        return mCueFrames.getNextTimecode(index);
     }
 
     /**
@@ -494,123 +608,706 @@ public class EBMLReader {
      * This operation is slow and should be done on a background thread.
      * Once the subtitle is parsed out, it will be placed into a subtitle object then you can
      * use getSubtitles().get(i).readUnreadSubtitles() to get the read subtitle
-     * On the dev side, you should keep a Set<Integer> to keep track of which cue entries
-     * you have read so you dont need to run this function on the same entry again.
+     * Each cue entry is only read once, calling this again on the same entry, or while another
+     * thread or the SubtitleScheduler is reading it, returns false right away.
      * @param index of the cue frame
      * @return if there are any subtitles parsed
      * @throws IOException
      */
     public boolean readSubtitlesInCueFrame(int index) throws IOException {
-        Cluster.Entry entry = mCueFrames.get(index);
-        if (!entry.mHasParsed) {
-            if (mHasCueSubtitlesPos) {
-                // There should be subtitle entries inside some video entries, read part of the cluster
-                if (entry.mSubEntries != null) {
-                    // This entry has subtitles!
-                    for (Cluster.Entry subEntry : entry.mSubEntries) {
-                        long pos = -1;
-                        int timecode = subEntry.mTimecode;
-                        synchronized (mRanAccFile) {
-                            MasterElement clusterEl = new MasterElement(Cluster.ENTRY, subEntry.mStartAddress);
-
-                            // Scan till after the id and length to properly get the position of the subtitle track
-                            mRanAccFile.seek(subEntry.mStartAddress);
-                            if (clusterEl.parseOnlyIdAndLength(mRanAccFile) == 0) {
-                                throw new EBMLException("Unable to parse cluster header info");
-                            }
+        EBMLSource clusterSource = getClusterSource();
+        synchronized (clusterSource) {
+            if (!mCueFrames.claim(index)) {
+                return false;
+            }
+            boolean parsed = false;
+            try {
+                if (mHasCueSubtitlesPos) {
+                    // There should be subtitle entries inside some video entries, read part of the
+                    // cluster. Entries without any are left unparsed
+                    parsed = readCueSubtitles(clusterSource, index);
+                    return parsed;
+                }
 
-                            // Go directly to the subtitle track data and parse the block
-                            mRanAccFile.skipBytes(subEntry.mRelativePosition);
-                            pos = mRanAccFile.getFilePointer();
-                        }
-                        MasterElement blockGroup = new MasterElement(Cluster.BLOCK_GROUP_NODE, pos);
-                        if (!blockGroup.parse(mRanAccFile)) {
-                            synchronized (mRanAccFile) {
-                                // Rare case if author used simpleblock instead of block group since
-                                // simple block has no duration, making the subtitle useless, ignore it
-                                mRanAccFile.seek(pos);
-                                int id = ElementBase.readId(mRanAccFile);
-                                if (id == Cluster.SIMPLE_BLOCK) {
-                                    continue;
-                                }
-                                throw new EBMLParsingException("Cannot parse block group");
-                            }
-                        }
+                // Cues did not tell us any subtitle locations, we need to read the entire cluster
+                if (mClusterSubtitlesParser == null) {
+                    mClusterSubtitlesParser = new ClusterSubtitlesParser(mSubtitles);
+                }
+                boolean parsedAtLeastOneSub = scanCueFrame(clusterSource,
+                        mClusterSubtitlesParser, index);
+                parsed = true;
+                return parsedAtLeastOneSub;
+            } finally {
+                if (parsed) {
+                    mCueFrames.setParsed(index);
+                } else {
+                    mCueFrames.release(index);
+                }
+            }
+        }
+    }
 
-                        // Get the block track number and put it in the correct subtitle track
-                        BlockElement block = blockGroup.getBlockElement(Cluster.BLOCK_ID);
-                        int blockTrackNumber = block.getTrackNumber();
-                        boolean sorted = false;
-                        for (Subtitles sub : mSubtitles) {
-                            if (sub.getTrackNumber() == blockTrackNumber) {
-                                sorted = true;
-                                sub.appendBlock(block, timecode - block.getTimecode(),
-                                        blockGroup.getValueInt(Cluster.BLOCK_DURATION));
-                            }
-                        }
-                        if (!sorted) {
-                            throw new EBMLParsingException("Cannot parse block group for subtitles, is file corrupted?");
-                        }
+    // Read the subtitles the cues point to in a cue entry, the cluster source must be locked
+    private boolean readCueSubtitles(EBMLSource clusterSource, int index) throws IOException {
+        int subStart = mCueFrames.getSubEntryStart(index);
+        int subEnd = mCueFrames.getSubEntryEnd(index);
+        if (subStart >= subEnd) {
+            return false;
+        }
+
+        // This entry has subtitles!
+        for (int subIndex = subStart; subIndex < subEnd; subIndex++) {
+            int timecode = mCueFrames.getSubTimecode(subIndex);
+            long subAddress = mCueFrames.getSubAddress(subIndex);
+            MasterElement clusterEl = new MasterElement(Cluster.ENTRY, subAddress);
+
+            // Scan till after the id and length to properly get the position of the subtitle track
+            clusterSource.seek(subAddress);
+            if (clusterEl.parseOnlyIdAndLength(clusterSource) == 0) {
+                throw new EBMLException("Unable to parse cluster header info");
+            }
+
+            // Go directly to the subtitle track data and parse the block
+            clusterSource.skip(mCueFrames.getSubRelativePosition(subIndex));
+            long pos = clusterSource.position();
+            MasterElement blockGroup = new MasterElement(Cluster.BLOCK_GROUP_NODE, pos);
+            if (!blockGroup.parse(clusterSource, mBlockGroupProjection)) {
+                // Rare case if author used simpleblock instead of block group since
+                // simple block has no duration, making the subtitle useless, ignore it
+                clusterSource.seek(pos);
+                int id = ElementBase.readId(clusterSource);
+                if (id == Cluster.SIMPLE_BLOCK) {
+                    continue;
+                }
+                throw new EBMLParsingException("Cannot parse block group");
+            }
+
+            // Get the block track number and put it in the correct subtitle track
+            BlockElement block = blockGroup.getBlockElement(Cluster.BLOCK_ID);
+            int blockTrackNumber = block.getTrackNumber();
+            boolean sorted = false;
+            for (Subtitles sub : mSubtitles) {
+                if (sub.getTrackNumber() == blockTrackNumber) {
+                    sorted = true;
+                    sub.appendBlock(block, timecode - block.getTimecode(),
+                            blockGroup.getValueInt(Cluster.BLOCK_DURATION));
+                }
+            }
+            if (!sorted) {
+                throw new EBMLParsingException("Cannot parse block group for subtitles, is file corrupted?");
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find the first cue entry from an index that was not parsed, used by SubtitleScheduler
+     * @param from index to start at
+     * @return index of the entry or -1 if all entries from there were parsed
+     */
+    int nextUnparsedCueFrame(int from) {
+        return mCueFrames.nextUnparsed(from);
+    }
+
+    /**
+     * Same as readSubtitlesInCueFrame() but the scan can be cancelled between clusters by changing
+     * the generation, the subtitles read so far are then dropped and the entry stays unparsed.
+     * The entry is marked as parsed once it is read, even if the cues said it has no subtitles.
+     * Used by SubtitleScheduler
+     * @param index of the cue frame
+     * @param generation that is changed to cancel
+     * @param expectedGeneration value of the generation when this was started
+     * @return if any subtitles were read
+     * @throws IOException
+     */
+    boolean readSubtitlesInCueFrame(int index, AtomicInteger generation, int expectedGeneration)
+            throws IOException {
+        EBMLSource clusterSource = getClusterSource();
+        synchronized (clusterSource) {
+            if (!mCueFrames.claim(index)) {
+                return false;
+            }
+            boolean parsed = false;
+            try {
+                if (mHasCueSubtitlesPos) {
+                    // Each subtitle is read directly, this is too short to be worth cancelling
+                    boolean parsedAtLeastOneSub = readCueSubtitles(clusterSource, index);
+                    parsed = true;
+                    return parsedAtLeastOneSub;
+                }
+
+                if (mCancellableSubtitlesParser == null) {
+                    mCancellableSubtitlesParser = new ClusterSubtitlesParser(mSubtitles, true);
+                }
+                List<ClusterSubtitlesParser.PendingCaption> pending =
+                        mCancellableSubtitlesParser.getPending();
+                pending.clear();
+                scanCueFrame(clusterSource, mCancellableSubtitlesParser, index, generation,
+                        expectedGeneration);
+                if (generation.get() != expectedGeneration) {
+                    pending.clear();
+                    return false;
+                }
+                boolean parsedAtLeastOneSub = !pending.isEmpty();
+                for (ClusterSubtitlesParser.PendingCaption caption : pending) {
+                    caption.append();
+                }
+                pending.clear();
+                parsed = true;
+                return parsedAtLeastOneSub;
+            } finally {
+                if (parsed) {
+                    mCueFrames.setParsed(index);
+                } else {
+                    mCueFrames.release(index);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the subtitles of every cue entry that was not parsed yet, scanning ranges of the
+     * clusters on separate threads with their own read position. The subtitles of each track are
+     * appended in the order of their start time once all the ranges are read, then use
+     * getSubtitles().get(i).readUnreadSubtitles() to get them. Cues are read if they were not
+     * already.
+     * Only files without subtitle positions in the cues need the whole clusters to be scanned, for
+     * other files each subtitle is read directly on the calling thread.
+     * Cue entries that another thread or the SubtitleScheduler is reading at the same time are
+     * left to it. If a range fails to be read, the other ranges are stopped and the entries stay
+     * unparsed.
+     * This blocks till all subtitles are read and should be done on a background thread.
+     * @param parallelism amount of threads to scan with
+     * @return if any subtitles were read
+     * @throws IOException
+     */
+    public boolean readAllSubtitles(int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            return readAllSubtitles(executor, parallelism);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Reads the subtitles of every cue entry that was not parsed yet using the threads of an
+     * executor, see readAllSubtitles(int)
+     * @param executor to scan the ranges of clusters on
+     * @param parallelism amount of threads of the executor to use
+     * @return if any subtitles were read
+     * @throws IOException
+     */
+    public boolean readAllSubtitles(ExecutorService executor, int parallelism)
+            throws IOException {
+        if (mCueFrames == null) {
+            readCues();
+        }
+        if (mHasCueSubtitlesPos || parallelism == 1) {
+            boolean parsedAtLeastOneSub = false;
+            for (int i = 0; i < mCueFrames.size(); i++) {
+                if (readSubtitlesInCueFrame(i)) {
+                    parsedAtLeastOneSub = true;
+                }
+            }
+            return parsedAtLeastOneSub;
+        }
+
+        // Claim the cue entries that are left so no other reader parses them at the same time,
+        // then split them into ranges, a few for each thread so that threads that finish early
+        // can take another range
+        final int[] entries = new int[mCueFrames.size()];
+        int count = 0;
+        for (int i = 0; i < mCueFrames.size(); i++) {
+            if (mCueFrames.claim(i)) {
+                entries[count++] = i;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        boolean parsed = false;
+        try {
+            ArrayList<ClusterSubtitlesParser.PendingCaption> pending =
+                    scanCueFrames(executor, parallelism, entries, count);
+
+            // Ranges are in file order, sort by time for the few subtitles that are out of order
+            Collections.sort(pending, new Comparator<ClusterSubtitlesParser.PendingCaption>() {
+                @Override
+                public int compare(ClusterSubtitlesParser.PendingCaption a,
+                                   ClusterSubtitlesParser.PendingCaption b) {
+                    int timeA = a.getStartTime();
+                    int timeB = b.getStartTime();
+                    return timeA < timeB ? -1 : (timeA == timeB ? 0 : 1);
+                }
+            });
+            synchronized (getClusterSource()) {
+                for (ClusterSubtitlesParser.PendingCaption caption : pending) {
+                    caption.append();
+                }
+                for (int i = 0; i < count; i++) {
+                    mCueFrames.setParsed(entries[i]);
+                }
+            }
+            parsed = true;
+            return !pending.isEmpty();
+        } finally {
+            if (!parsed) {
+                for (int i = 0; i < count; i++) {
+                    mCueFrames.release(entries[i]);
+                }
+            }
+        }
+    }
+
+    // Scan the claimed cue entries on the executor, the subtitles found are returned unsorted.
+    // If a range fails the others stop at their next entry and are waited for before throwing
+    private ArrayList<ClusterSubtitlesParser.PendingCaption> scanCueFrames(
+            ExecutorService executor, int parallelism, final int[] entries, int count)
+            throws IOException {
+        final AtomicBoolean stop = new AtomicBoolean();
+        int rangeCount = Math.min(count, parallelism * RANGES_PER_THREAD);
+        List<Future<List<ClusterSubtitlesParser.PendingCaption>>> results =
+                new ArrayList<>(rangeCount);
+        for (int r = 0; r < rangeCount; r++) {
+            final int from = (int) ((long) count * r / rangeCount);
+            final int to = (int) ((long) count * (r + 1) / rangeCount);
+            results.add(executor.submit(new Callable<List<ClusterSubtitlesParser.PendingCaption>>() {
+                @Override
+                public List<ClusterSubtitlesParser.PendingCaption> call() throws IOException {
+                    EBMLSource source = mSource.duplicate();
+                    ClusterSubtitlesParser parser = new ClusterSubtitlesParser(mSubtitles, true);
+                    for (int i = from; i < to && !stop.get(); i++) {
+                        scanCueFrame(source, parser, entries[i]);
                     }
-                    entry.mHasParsed = true;
-                    return true;
+                    return parser.getPending();
                 }
-            } else {
-                synchronized (mRanAccFile) {
-                    // Cues did not tell us any subtitle locations, we need to read the entire cluster
-                    boolean parsedAtLeastOneSub = false;
-                    mRanAccFile.seek(entry.mStartAddress);
-
-                    while (true) {
-                        // Keep parsing till we reach the next cluster position set from Cues
-                        MasterElement clusterEl = new MasterElement(Cluster.ENTRY, mRanAccFile.getFilePointer());
-                        if (!clusterEl.parse(mRanAccFile, mSubtitleTrackNumbers, mClusterBlockReadOnlyEl)) {
-                            // End of clusters
-                            if (entry.mEndAddress != mCuesPosition - 1) {
-                                throw new EBMLParsingException("Unable to parse cluster header info");
-                            }
-                            break;
-                        }
+            }));
+        }
 
-                        // Sort each subtitle entry inside this cluster into its subtitle track
-                        int timecode = 0;
-                        for (ElementBase el : clusterEl.getElements()) {
-                            if (el.getType() == NodeBase.Type.MASTER) {
-                                BlockElement block = ((MasterElement) el).getBlockElement(Cluster.BLOCK_ID);
-                                if (block != null) {
-                                    int blockTrackNumber = block.getTrackNumber();
-                                    boolean sorted = false;
-                                    for (Subtitles sub : mSubtitles) {
-                                        if (sub.getTrackNumber() == blockTrackNumber) {
-                                            sorted = true;
-                                            sub.appendBlock(block, timecode,
-                                                    ((MasterElement) el).getValueInt(Cluster.BLOCK_DURATION));
-                                            parsedAtLeastOneSub = true;
-                                        }
-                                    }
-                                    if (!sorted) {
-                                        throw new EBMLParsingException("Cannot parse block group for subtitles, is file corrupted?");
-                                    }
-                                }
-                            } else if (el.getType() == NodeBase.Type.INT) {
-                                timecode = ((IntElement) el).getData();
-                            } else {
-                                throw new EBMLParsingException("Parsing cluster for subtitles gained useless data");
-                            }
-                        }
+        ArrayList<ClusterSubtitlesParser.PendingCaption> pending = new ArrayList<>();
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<List<ClusterSubtitlesParser.PendingCaption>> result : results) {
+            // Do not interrupt the threads, a file channel is closed when its thread is
+            // interrupted, wait for each range to stop instead
+            while (true) {
+                try {
+                    List<ClusterSubtitlesParser.PendingCaption> captions = result.get();
+                    if (failure == null && !interrupted) {
+                        pending.addAll(captions);
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stop.set(true);
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    stop.set(true);
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading subtitles");
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new EBMLException("Unable to read subtitles", failure);
+        }
+        return pending;
+    }
 
-                        // Once we reach the next cluster position set from Cues, we can end the loop
-                        // The last entry will have an end address right before the cues, so scan till end
-                        if (entry.mEndAddress != mCuesPosition - 1 && mRanAccFile.getFilePointer() >= entry.mEndAddress) {
-                            break;
-                        }
+    /**
+     * Reads the clusters that were written since the last call, for files that are still being
+     * recorded. This does not use cues since they are only written once the file is finished,
+     * instead each cluster is parsed as it is completed. Subtitles in new clusters are appended
+     * to the existing subtitle tracks and each cluster starting with a video keyframe is added as
+     * a cue entry so that the cue getters can be used to seek. Tracks are read if they were not
+     * already, earlier clusters are never read again.
+     * Call this again whenever the file grows. A cluster is only read once it is complete, for
+     * clusters with unknown size that is when the next top level element has been written.
+     * Do not use readCues() on the same reader since this fills the cue entries itself.
+     * The source must see the file grow, which a memory mapped source does not.
+     * @return if any subtitles were read from the new clusters
+     * @throws IOException
+     */
+    public boolean readNewClusters() throws IOException {
+        if (mTracksHeader == null) {
+            readTracks();
+        }
+        if (mCueFrames == null) {
+            mCueFrames = new CueIndex();
+        }
+        if (mFollowProjection == null) {
+            int[] trackNumbers = new int[mSubtitleTrackNumbers.size() + 1];
+            int i = 0;
+            for (int trackNumber : mSubtitleTrackNumbers) {
+                trackNumbers[i++] = trackNumber;
+            }
+            trackNumbers[i] = mVideoTrackIndex;
+            mFollowProjection = new ParseProjection.Builder()
+                    .onlyIdsAtDepth(0, Cluster.TIMECODE, Cluster.SIMPLE_BLOCK, Cluster.BLOCK_GROUP)
+                    .onlyIdsAtDepth(1, Cluster.BLOCK_ID, Cluster.BLOCK_DURATION,
+                            Cluster.REFERENCE_BLOCK)
+                    .onlyTracks(trackNumbers)
+                    .build();
+        }
+
+        boolean parsedAtLeastOneSub = false;
+        EBMLSource clusterSource = getClusterSource();
+        synchronized (clusterSource) {
+            if (mFollowPosition == 0) {
+                mFollowPosition = findFirstClusterPosition(clusterSource);
+                if (mFollowPosition == 0) {
+                    // No clusters have been written yet
+                    return false;
+                }
+            }
+
+            long length = clusterSource.length();
+            while (mFollowPosition < length) {
+                long position = mFollowPosition;
+                int id;
+                long dataLength;
+                try {
+                    clusterSource.seek(position);
+                    id = ElementBase.readId(clusterSource);
+                    dataLength = ElementBase.readLength(clusterSource);
+                } catch (EOFException e) {
+                    // Header of the next element is still being written
+                    break;
+                }
+                boolean unknownSize = dataLength == ElementBase.UNKNOWN_LENGTH;
+                long end = clusterSource.position() + dataLength;
+                if (!unknownSize && end > length) {
+                    // Still being written
+                    break;
+                }
+                if (id != Cluster.ID) {
+                    // Skip other top level elements such as cues written once recording ends
+                    if (unknownSize) {
+                        throw new EBMLParsingException("Cannot follow past element with unknown size @ 0x"
+                                + Long.toHexString(position));
                     }
-                    entry.mHasParsed = true;
-                    return parsedAtLeastOneSub;
+                    mFollowPosition = end;
+                    continue;
+                }
+
+                MasterElement clusterEl = new MasterElement(Cluster.ENTRY, position);
+                clusterSource.seek(position);
+                try {
+                    if (!clusterEl.parse(clusterSource, mFollowProjection)) {
+                        throw new EBMLParsingException("Unable to parse cluster @ 0x"
+                                + Long.toHexString(position));
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                // Clusters with unknown size end at the next top level element, if the cluster
+                // reached the end of the file then more of it can still be written
+                end = clusterSource.position();
+                if (unknownSize && end >= length) {
+                    break;
+                }
+
+                if (appendClusterSubtitles(clusterEl, mSubtitles)) {
+                    parsedAtLeastOneSub = true;
+                }
+                recordFollowedCluster(clusterEl, position, end);
+                mFollowPosition = end;
+            }
+        }
+        return parsedAtLeastOneSub;
+    }
+
+    /**
+     * Get the position after the last cluster read by readNewClusters()
+     * @return position in file or 0 if no clusters have been read
+     */
+    public long getFollowPosition() {
+        return mFollowPosition;
+    }
+
+    /**
+     * Save what has been read so far into an index so that the next time this file is opened,
+     * loadIndex() can restore it without parsing the header, tracks, cues or the clusters that
+     * subtitles were already read from. The index has the positions of the sections, the tracks,
+     * the cue entries with which ones were parsed and the position of every subtitle block found.
+     * Keep the index next to the file or in a cache directory.
+     * Do not read from this reader on other threads while saving.
+     * @param indexFile file to write the index to
+     * @param lastModified modified time of the file being read, for example File.lastModified()
+     * @throws IOException
+     */
+    public void saveIndex(File indexFile, long lastModified) throws IOException {
+        OutputStream out = new FileOutputStream(indexFile);
+        try {
+            writeIndex(out, lastModified);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Save what has been read so far into an index, see saveIndex()
+     * @param out stream to write the index to, it is not closed
+     * @param lastModified modified time of the file being read
+     * @throws IOException
+     */
+    public void writeIndex(OutputStream out, long lastModified) throws IOException {
+        if (mEmblHeader == null) {
+            throw new IllegalStateException("Read the header before writing an index");
+        }
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(INDEX_MAGIC);
+        data.writeInt(INDEX_VERSION);
+        data.writeLong(mSource.length());
+        data.writeLong(lastModified);
+        data.writeLong(hashIndexKey(readIndexKeyBytes()));
+
+        data.writeLong(mPositionOffset);
+        data.writeFloat(mDurationMs);
+        data.writeLong(mInfoPosition);
+        data.writeLong(mTracksPosition);
+        data.writeLong(mCuesPosition);
+        data.writeLong(mChaptersPosition);
+        data.writeLong(mAttachmentsPosition);
+        data.writeLong(mFollowPosition);
+        data.writeLong(mClusterScanPosition);
+
+        synchronized (mSeekPositions) {
+            // Make sure the entries of every parsed seek head are in the table
+            findPositionFromSegmentEntry(Segment.SEEK_HEAD);
+            data.writeInt(mSeekPositions.size());
+            for (Map.Entry<Integer, Long> entry : mSeekPositions.entrySet()) {
+                data.writeInt(entry.getKey());
+                data.writeLong(entry.getValue());
+            }
+        }
+
+        // Keep the tracks as they are in the file, they are parsed again from memory when loaded
+        if (mTracksHeader != null) {
+            byte[] tracks;
+            synchronized (mSource) {
+                mSource.seek(mTracksPosition);
+                long length = MasterElement.parseUpToLength(mSource, Tracks.ID);
+                length += mSource.position() - mTracksPosition;
+                if (length > Integer.MAX_VALUE) {
+                    throw new EBMLParsingException("Tracks are too large to index");
+                }
+                tracks = new byte[(int) length];
+                mSource.readFully(mTracksPosition, tracks, 0, tracks.length);
+            }
+            data.writeInt(tracks.length);
+            data.write(tracks);
+        } else {
+            data.writeInt(0);
+        }
+
+        data.writeBoolean(mCueFrames != null);
+        if (mCueFrames != null) {
+            data.writeBoolean(mHasCueSubtitlesPos);
+            mCueFrames.write(data);
+        }
+        data.writeBoolean(mKeyframes != null);
+        if (mKeyframes != null) {
+            mKeyframes.write(data);
+        }
+
+        int trackCount = mTracksHeader != null ? mSubtitles.size() : 0;
+        data.writeInt(trackCount);
+        for (int i = 0; i < trackCount; i++) {
+            Subtitles subs = mSubtitles.get(i);
+            List<Caption> captions = subs.getAllCaptions();
+            data.writeInt(subs.getTrackNumber());
+            data.writeInt(captions.size());
+            for (Caption caption : captions) {
+                BlockElement block = caption.getBlock();
+                data.writeInt(block.id());
+                data.writeLong(block.getFilePosition());
+                data.writeLong(block.getDataSize());
+                data.writeInt(block.getTrackNumber());
+                data.writeInt(block.getTimecode());
+                data.writeInt(block.getFlags());
+                data.writeLong(block.getDataPosition());
+                data.writeInt(block.getDataLength());
+                data.writeInt(caption.getStartTime().getTime());
+                data.writeInt(caption.getEndTime().getTime());
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Restore what was read before from an index saved with saveIndex(). Use this on a new reader
+     * instead of readHeader(), if it returns true then the header, tracks, cues and subtitles that
+     * were read before are ready, the subtitles are all unread. The index is only used if it was
+     * saved from a file with the same length, modified time and beginning as this one, otherwise
+     * nothing is changed and the file should be read as usual.
+     * @param indexFile file with the index
+     * @param lastModified modified time of the file being read, for example File.lastModified()
+     * @return if the index was loaded, false if it does not exist or is for a different file
+     * @throws IOException if the index cannot be read
+     */
+    public boolean loadIndex(File indexFile, long lastModified) throws IOException {
+        if (!indexFile.isFile()) {
+            return false;
+        }
+        InputStream in = new FileInputStream(indexFile);
+        try {
+            return readIndex(in, lastModified);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Restore what was read before from an index, see loadIndex()
+     * @param in stream to read the index from, it is not closed
+     * @param lastModified modified time of the file being read
+     * @return if the index was loaded, false if it is for a different file
+     * @throws IOException if the index cannot be read
+     */
+    public boolean readIndex(InputStream in, long lastModified) throws IOException {
+        if (mEmblHeader != null) {
+            throw new IllegalStateException("Cannot load an index after reading the header");
+        }
+        if (!mSource.isSeekable()) {
+            return false;
+        }
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != INDEX_MAGIC || data.readInt() != INDEX_VERSION
+                || data.readLong() != mSource.length() || data.readLong() != lastModified) {
+            return false;
+        }
+        long hash = data.readLong();
+        byte[] start = readIndexKeyBytes();
+        if (hashIndexKey(start) != hash) {
+            return false;
+        }
+
+        // Everything is read before it is set so nothing changes if the index is broken
+        MasterElement emblHeader = new MasterElement(EBML_ROOT, 0);
+        if (!emblHeader.parse(new ByteArraySource(start))) {
+            return false;
+        }
+        long positionOffset = data.readLong();
+        float durationMs = data.readFloat();
+        long infoPosition = data.readLong();
+        long tracksPosition = data.readLong();
+        long cuesPosition = data.readLong();
+        long chaptersPosition = data.readLong();
+        long attachmentsPosition = data.readLong();
+        long followPosition = data.readLong();
+        long clusterScanPosition = data.readLong();
+
+        int seekCount = data.readInt();
+        HashMap<Integer, Long> seekPositions = new HashMap<>();
+        for (int i = 0; i < seekCount; i++) {
+            int id = data.readInt();
+            seekPositions.put(id, data.readLong());
+        }
+
+        MasterElement tracksHeader = null;
+        ArrayList<Subtitles> subtitles = null;
+        ArrayList<AudioTrack> audioTracks = null;
+        int videoTrackIndex = 0;
+        HashMap<Integer, ContentDecoder> decoders = new HashMap<>();
+        int tracksLength = data.readInt();
+        if (tracksLength > 0) {
+            byte[] tracks = new byte[tracksLength];
+            data.readFully(tracks);
+            EBMLSource tracksSource = new ByteArraySource(tracks, tracksPosition);
+            tracksHeader = new MasterElement(Tracks.HEADER, tracksPosition);
+            if (!tracksHeader.parseLazily(tracksSource)) {
+                throw new EBMLParsingException("Unable to parse tracks from the index");
+            }
+            subtitles = new ArrayList<>();
+            audioTracks = new ArrayList<>();
+            videoTrackIndex = readTrackEntries(tracksHeader, subtitles, audioTracks, decoders);
+        }
+
+        CueIndex cueFrames = null;
+        boolean hasCueSubtitlesPos = false;
+        if (data.readBoolean()) {
+            hasCueSubtitlesPos = data.readBoolean();
+            cueFrames = CueIndex.read(data);
+        }
+        KeyframeIndex keyframes = data.readBoolean() ? KeyframeIndex.read(data) : null;
+
+        int trackCount = data.readInt();
+        if (trackCount > 0 && subtitles == null) {
+            throw new EBMLParsingException("Index has subtitles without tracks");
+        }
+        EBMLSource clusterSource = getClusterSource();
+        for (int i = 0; i < trackCount; i++) {
+            int trackNumber = data.readInt();
+            Subtitles subs = null;
+            for (Subtitles track : subtitles) {
+                if (track.getTrackNumber() == trackNumber) {
+                    subs = track;
+                    break;
                 }
             }
+            if (subs == null) {
+                throw new EBMLParsingException("Index has subtitles for unknown track " + trackNumber);
+            }
+            int count = data.readInt();
+            for (int j = 0; j < count; j++) {
+                BlockElement block = BlockElement.create(data.readInt(), clusterSource,
+                        data.readLong(), data.readLong(), data.readInt(), data.readInt(),
+                        data.readInt(), data.readLong(), data.readInt());
+                int startTime = data.readInt();
+                int endTime = data.readInt();
+                subs.appendBlock(block, startTime - block.getTimecode(), endTime - startTime);
+            }
+        }
+
+        mEmblHeader = emblHeader;
+        mPositionOffset = positionOffset;
+        mDurationMs = durationMs;
+        mInfoPosition = infoPosition;
+        mTracksPosition = tracksPosition;
+        mCuesPosition = cuesPosition;
+        mChaptersPosition = chaptersPosition;
+        mAttachmentsPosition = attachmentsPosition;
+        mFollowPosition = followPosition;
+        mClusterScanPosition = clusterScanPosition;
+        synchronized (mSeekPositions) {
+            mSegmentHeaders.clear();
+            mSeekPositions.clear();
+            mSeekPositions.putAll(seekPositions);
+            mSeekPositionsHeaderCount = 0;
+        }
+        if (tracksHeader != null) {
+            mTracksHeader = tracksHeader;
+            mSubtitles = subtitles;
+            mAudioTracks = audioTracks;
+            mVideoTrackIndex = videoTrackIndex;
+            mSubtitleTrackNumbers.clear();
+            for (Subtitles subs : mSubtitles) {
+                mSubtitleTrackNumbers.add(subs.getTrackNumber());
+            }
+            mContentDecoders.clear();
+            mContentDecoders.putAll(decoders);
         }
-        return false;
+        mCueFrames = cueFrames;
+        mKeyframes = keyframes;
+        mHasCueSubtitlesPos = hasCueSubtitlesPos;
+        return true;
     }
 
     /**
@@ -620,29 +1317,14 @@ public class EBMLReader {
      * @return the index
      */
     public int getCueIndexAtTime(int time) {
-        int low = 0;
         int high = mCueFrames.size() - 1;
-
-        if (time > mCueFrames.get(high).mTimecode) {
-            return high;
-        }
-
         if (high < 0) {
             throw new IllegalArgumentException("The array cannot be empty");
         }
-        if (time > mCueFrames.get(high).mTimecode) {
-            throw new IllegalArgumentException("Input time is above last time");
-        }
-
-        while (low < high) {
-            int mid = (low + high) / 2;
-            if (mCueFrames.get(mid).mTimecode < time) {
-                low = mid+1;
-            } else {
-                high = mid;
-            }
+        if (time > mCueFrames.getTimecode(high)) {
+            return high;
         }
-        return Math.max(high-1, 0);
+        return Math.max(mCueFrames.lowerBoundOfTime(time) - 1, 0);
     }
 
     /**
@@ -652,26 +1334,14 @@ public class EBMLReader {
      * @return the index
      */
     public int getCueIndexFromAddress(long address) {
-        int low = 0;
         int high = mCueFrames.size() - 1;
-
-        if (address > mCueFrames.get(high).mStartAddress) {
-            return high;
-        }
-
         if (high < 0) {
             throw new IllegalArgumentException("The array cannot be empty");
         }
-
-        while (low < high) {
-            int mid = (low + high) / 2;
-            if (mCueFrames.get(mid).mStartAddress < address) {
-                low = mid+1;
-            } else {
-                high = mid;
-            }
+        if (address > mCueFrames.getStartAddress(high)) {
+            return high;
         }
-        return Math.max(high-1, 0);
+        return Math.max(mCueFrames.lowerBoundOfAddress(address) - 1, 0);
     }
 
     /**
@@ -681,8 +1351,109 @@ public class EBMLReader {
      * @return if you can parse this entry
      */
     public boolean canParseSubtitlesFromCueAt(int index) {
-        Cluster.Entry entry = mCueFrames.get(index);
-        return !entry.mHasParsed && entry.mSubEntries != null && !entry.mSubEntries.isEmpty();
+        return !mCueFrames.isParsed(index)
+                && mCueFrames.getSubEntryStart(index) < mCueFrames.getSubEntryEnd(index);
+    }
+
+    /**
+     * Get the amount of keyframes of a track listed in the cues, after readCues()
+     * @param trackNumber of the track
+     * @return amount of keyframes, 0 if the track has none or the cues were not read
+     */
+    public int getKeyframeCount(int trackNumber) {
+        return mKeyframes != null ? mKeyframes.size(trackNumber) : 0;
+    }
+
+    public Keyframe getKeyframe(int trackNumber, int index) {
+        if (mKeyframes == null) {
+            throw new IllegalStateException("Cues have not been read");
+        }
+        return mKeyframes.get(trackNumber, index);
+    }
+
+    /**
+     * Find the keyframe of a track to start playing from at a time, which is the last keyframe
+     * listed in the cues that is not after the time. Use readKeyframeBlock() to read its block.
+     * Finds the keyframe using binary search
+     * @param trackNumber of the track, such as the video track
+     * @param timeMs time to seek to
+     * @return the keyframe, the first one if all are after the time or null if the track has no
+     *         keyframes in the cues
+     */
+    public Keyframe seekKeyframe(int trackNumber, int timeMs) {
+        if (mKeyframes == null) {
+            return null;
+        }
+        int index = mKeyframes.floorOfTime(trackNumber, timeMs);
+        return index >= 0 ? mKeyframes.get(trackNumber, index) : null;
+    }
+
+    /**
+     * Read the block that a keyframe points to. When the cues have the relative position of the
+     * block this goes straight to it, otherwise the cluster is walked to find the first block of
+     * the track at the time of the keyframe.
+     * The data of the block is read when it is asked for with readData().
+     * @param keyframe from seekKeyframe() or getKeyframe()
+     * @return the block or null if it was not found
+     * @throws IOException
+     */
+    public BlockElement readKeyframeBlock(Keyframe keyframe) throws IOException {
+        EBMLSource clusterSource = getClusterSource();
+        synchronized (clusterSource) {
+            clusterSource.seek(keyframe.getClusterPosition());
+            long length = MasterElement.parseUpToLength(clusterSource, Cluster.ID);
+            if (length == 0) {
+                throw new EBMLParsingException("Unable to parse cluster header info");
+            }
+            long dataPosition = clusterSource.position();
+            if (keyframe.getRelativePosition() > 0) {
+                return readBlockAt(clusterSource, dataPosition + keyframe.getRelativePosition());
+            }
+
+            // Walk the cluster for the first block of the track at the keyframe time
+            EBMLCursor cursor = new EBMLCursor(clusterSource, dataPosition, length);
+            int timecode = 0;
+            while (cursor.next()) {
+                int id = cursor.id();
+                if (id == Cluster.TIMECODE) {
+                    timecode = (int) cursor.readUnsigned();
+                } else if (id == Cluster.SIMPLE_BLOCK || id == Cluster.BLOCK_GROUP) {
+                    // The cursor seeks back to the next element after the block is read
+                    BlockElement block = readBlockAt(clusterSource, cursor.position());
+                    if (block != null && block.getTrackNumber() == keyframe.getTrackNumber()
+                            && timecode + block.getTimecode() >= keyframe.getTime()) {
+                        return block;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the content encodings of a track
+     * You must call the functions in the order:
+     *      readHeader()
+     *      readTracks()
+     * @param trackNumber of the track
+     * @return the decoder or null if the frames of the track are not encoded
+     */
+    public ContentDecoder getContentDecoder(int trackNumber) {
+        return mContentDecoders.get(trackNumber);
+    }
+
+    /**
+     * Read the data of a block with the content encodings of its track undone, such as a block
+     * from readKeyframeBlock(). Subtitle captions already do this in Caption.getByteData().
+     * @param block to read
+     * @return decoded frame data
+     * @throws IOException
+     * @throws UnsupportedOperationException if the encodings of the track are not supported
+     */
+    public byte[] readFrameData(BlockElement block) throws IOException {
+        byte[] data = block.readData();
+        ContentDecoder decoder = mContentDecoders.get(block.getTrackNumber());
+        return decoder != null ? decoder.decode(data) : data;
     }
 
     /**
@@ -694,88 +1465,254 @@ public class EBMLReader {
      * @throws IOException
      */
     public void readCues() throws IOException {
-        if (mCuesHeader == null) {
+        if (mCueFrames == null) {
             findCuesPosition();
             if (mCuesPosition > 0) {
-                synchronized (mRanAccFile) {
-                    mRanAccFile.seek(mCuesPosition);
-                    mCuesHeader = new MasterElement(Cues.HEADER, mCuesPosition);
-                    if (!mCuesHeader.parse(mRanAccFile)) {
+                CueIndex cueFrames = new CueIndex();
+                KeyframeIndex keyframes = new KeyframeIndex();
+                int currentVidEntry = -1;
+                long currentSubAddress = -1;
+                int currentSubRelativePos = 0;
+
+                // Track positions of the current cue point, reused for every point
+                int positionCount = 0;
+                int[] trackNumbers = new int[4];
+                long[] addresses = new long[4];
+                int[] relativePositions = new int[4];
+                int[] durations = new int[4];
+                int[] blockNumbers = new int[4];
+
+                synchronized (mSource) {
+                    mSource.seek(mCuesPosition);
+                    long cuesLength = MasterElement.parseUpToLength(mSource, Cues.ID);
+                    if (cuesLength == 0) {
                         throw new EBMLParsingException("Unable to parse cues properly");
                     }
-                }
 
-                mCueFrames = new ArrayList<>();
-                Cluster.Entry currentVidEntry = null;
-                Cluster.Entry currentSubEntry = null;
-
-                // Read the cues for subtitle track entries and record the cluster position
-                for (ElementBase element : mCuesHeader.getElements()) {
-                    MasterElement master = (MasterElement) element;
-                    int cueTime = master.getValueInt(Cues.TIME, 0);
-                    MasterElement trackMaster = (MasterElement) master.getElement(Cues.TRACK_POSITIONS);
-
-                    int trackNumber = trackMaster.getValueInt(Cues.TRACK);
-                    long address = trackMaster.getValueLong(Cues.CLUSTER_POSITION);
-                    if (address == 0) throw new EBMLParsingException("Cannot parse the address from cues");
-                    address += mPositionOffset;
-
-                    // Record each entry into a list to relate time with data
-                    if (trackNumber == mVideoTrackIndex) {
-                        // Record video entries: Reading cues for cluster positions does not guarantee all addresses!!
-                        if (currentVidEntry != null) {
-                            // Do not put into list if address is same as previous
-                            if (currentVidEntry.mStartAddress == address) {
-                                continue;
-                            }
-                            currentVidEntry.mEndAddress = address - 1;
-                            currentVidEntry.mNextTimecode = cueTime;
+                    // Walk the cues without building elements since there can be a lot of them
+                    EBMLCursor cursor = new EBMLCursor(mSource, mSource.position(), cuesLength);
+                    while (cursor.next()) {
+                        if (cursor.id() != Cues.POINT) {
+                            continue;
                         }
-                        currentVidEntry = new Cluster.Entry(cueTime, address);
-                        mCueFrames.add(currentVidEntry);
-                    } else if (mSubtitleTrackNumbers.contains(trackNumber)) {
-                        // First entry in cues is a track for subtitles, use cue address
-                        if (currentVidEntry == null) {
-                            currentVidEntry = new Cluster.Entry(cueTime, address);
-                            mCueFrames.add(currentVidEntry);
+                        int cueTime = 0;
+                        positionCount = 0;
+                        cursor.enter();
+                        while (cursor.next()) {
+                            if (cursor.id() == Cues.TIME) {
+                                cueTime = (int) cursor.readUnsigned();
+                            } else if (cursor.id() == Cues.TRACK_POSITIONS) {
+                                if (positionCount == trackNumbers.length) {
+                                    int capacity = positionCount * 2;
+                                    trackNumbers = Arrays.copyOf(trackNumbers, capacity);
+                                    addresses = Arrays.copyOf(addresses, capacity);
+                                    relativePositions = Arrays.copyOf(relativePositions, capacity);
+                                    durations = Arrays.copyOf(durations, capacity);
+                                    blockNumbers = Arrays.copyOf(blockNumbers, capacity);
+                                }
+                                trackNumbers[positionCount] = 0;
+                                addresses[positionCount] = 0;
+                                relativePositions[positionCount] = 0;
+                                durations[positionCount] = 0;
+                                blockNumbers[positionCount] = 1;
+                                cursor.enter();
+                                while (cursor.next()) {
+                                    switch (cursor.id()) {
+                                        case Cues.TRACK:
+                                            trackNumbers[positionCount] = (int) cursor.readUnsigned();
+                                            break;
+                                        case Cues.CLUSTER_POSITION:
+                                            addresses[positionCount] = cursor.readUnsigned();
+                                            break;
+                                        case Cues.RELATIVE_POSITION:
+                                            relativePositions[positionCount] = (int) cursor.readUnsigned();
+                                            break;
+                                        case Cues.DURATION:
+                                            durations[positionCount] = (int) cursor.readUnsigned();
+                                            break;
+                                        case Cues.BLOCK_NUMBER:
+                                            blockNumbers[positionCount] = (int) cursor.readUnsigned();
+                                            break;
+                                    }
+                                }
+                                cursor.exit();
+                                positionCount++;
+                            }
                         }
+                        cursor.exit();
+                        if (positionCount == 0) throw new EBMLParsingException("Cannot parse the address from cues");
+
+                        for (int p = 0; p < positionCount; p++) {
+                            int trackNumber = trackNumbers[p];
+                            long address = addresses[p];
+                            int relativePos = relativePositions[p];
+                            if (address == 0) throw new EBMLParsingException("Cannot parse the address from cues");
+                            address += mPositionOffset;
+                            keyframes.add(trackNumber, cueTime, address, relativePos, durations[p],
+                                    blockNumbers[p]);
+
+                            // Record each entry into a list to relate time with data
+                            if (trackNumber == mVideoTrackIndex) {
+                                // Record video entries: Reading cues for cluster positions does not guarantee all addresses!!
+                                if (currentVidEntry >= 0) {
+                                    // Do not put into list if address is same as previous
+                                    if (cueFrames.getStartAddress(currentVidEntry) == address) {
+                                        continue;
+                                    }
+                                    cueFrames.setEnd(currentVidEntry, address - 1, cueTime);
+                                }
+                                currentVidEntry = cueFrames.add(cueTime, address);
+                            } else if (mSubtitleTrackNumbers.contains(trackNumber)) {
+                                // First entry in cues is a track for subtitles, use cue address
+                                if (currentVidEntry < 0) {
+                                    currentVidEntry = cueFrames.add(cueTime, address);
+                                }
 
-                        // Add a new cue entry here for more fine tune control over subtitles since
-                        // we didn't specify a cluster entry here before
-                        if (address != currentVidEntry.mStartAddress) {
-                            currentVidEntry.mEndAddress = address - 1;
-                            currentVidEntry.mNextTimecode = cueTime;
-                            currentVidEntry = new Cluster.Entry(cueTime, address);
-                            mCueFrames.add(currentVidEntry);
-                        }
+                                // Add a new cue entry here for more fine tune control over subtitles since
+                                // we didn't specify a cluster entry here before
+                                if (address != cueFrames.getStartAddress(currentVidEntry)) {
+                                    cueFrames.setEnd(currentVidEntry, address - 1, cueTime);
+                                    currentVidEntry = cueFrames.add(cueTime, address);
+                                }
 
-                        mHasCueSubtitlesPos = true;
-                        int relativePos = trackMaster.getValueInt(Cues.RELATIVE_POSITION);
-                        if (currentSubEntry != null) {
-                            // Do not put into list if address and relative address is same as previous
-                            if (currentSubEntry.mStartAddress == address
-                                    && currentSubEntry.mRelativePosition == relativePos) {
-                                continue;
+                                mHasCueSubtitlesPos = true;
+
+                                // Do not put into list if address and relative address is same as previous
+                                if (currentSubAddress == address && currentSubRelativePos == relativePos) {
+                                    continue;
+                                }
+                                currentSubAddress = address;
+                                currentSubRelativePos = relativePos;
+                                cueFrames.addSubEntry(cueTime, address, relativePos);
                             }
-                            currentSubEntry.mEndAddress = address - 1;
-                            currentSubEntry.mNextTimecode = cueTime;
                         }
-                        currentSubEntry = new Cluster.Entry(cueTime, address, relativePos);
-                        currentVidEntry.addSubtitle(currentSubEntry);
                     }
                 }
 
                 // Set the last cue entry with the total duration as next and address before cues as end address
-                if (currentVidEntry != null) {
-                    currentVidEntry.mNextTimecode = (int) Math.floor(getDuration());
-                    currentVidEntry.mEndAddress = mCuesPosition - 1;
+                if (currentVidEntry >= 0) {
+                    cueFrames.setEnd(currentVidEntry, mCuesPosition - 1,
+                            (int) Math.floor(getDuration()));
                 }
+                cueFrames.trim();
+                keyframes.trim();
+                mKeyframes = keyframes;
+                mCueFrames = cueFrames;
             } else {
-                throw new EBMLParsingException("Cannot find cues in file");
+                // No cues, build the entries from the clusters instead
+                readCuesFromClusters();
             }
         }
     }
 
+    /**
+     * Build the cue entries by hopping from cluster to cluster, for files without cues such as
+     * recordings from streaming. Only the id, size and timecode of each cluster is read and then
+     * it jumps to the next cluster, each cluster becomes a cue entry so the cue getters and
+     * readSubtitlesInCueFrame() work the same as with readCues(). readCues() uses this when the
+     * file has no cues. If the last cluster was cut off, its entry ends at the end of the file
+     * and the subtitles written before the cut are still read.
+     * This reads through the whole file and should be done on a background thread, use
+     * readCuesFromClusters(int) to index a few clusters at a time instead.
+     * @throws IOException
+     */
+    public void readCuesFromClusters() throws IOException {
+        while (readCuesFromClusters(CLUSTER_SCAN_BATCH)) {
+        }
+    }
+
+    /**
+     * Index the next clusters for files without cues, see readCuesFromClusters(). Call this again
+     * till it returns false, the entries indexed so far can be used in between. Nothing is done if
+     * the cue entries were already read from the cues.
+     * @param maxClusters most amount of clusters to index in this call
+     * @return if there are more clusters to index
+     * @throws IOException
+     */
+    public boolean readCuesFromClusters(int maxClusters) throws IOException {
+        if (mClusterScanPosition < 0 || (mCueFrames != null && mClusterScanPosition == 0)) {
+            return false;
+        }
+        if (mTracksHeader == null) {
+            readTracks();
+        }
+
+        EBMLSource clusterSource = getClusterSource();
+        synchronized (clusterSource) {
+            if (mClusterScanPosition == 0) {
+                mCueFrames = new CueIndex();
+                mClusterScanPosition = findFirstClusterPosition(clusterSource);
+                if (mClusterScanPosition == 0) {
+                    mClusterScanPosition = -1;
+                    return false;
+                }
+            }
+
+            long length = clusterSource.length();
+            int duration = (int) Math.floor(getDuration());
+            EBMLCursor cursor = new EBMLCursor(clusterSource, mClusterScanPosition,
+                    ElementBase.UNKNOWN_LENGTH);
+            int count = 0;
+            boolean hasMore = true;
+            while (count < maxClusters && mClusterScanPosition < length) {
+                if (!cursor.next()) {
+                    // Nothing else could be read, only part of a header is left if anything
+                    hasMore = false;
+                    break;
+                }
+                if (cursor.id() != Cluster.ID) {
+                    // Skip other top level elements, walk them if the size is not known
+                    if (cursor.size() == ElementBase.UNKNOWN_LENGTH) {
+                        cursor.enter();
+                        cursor.exit();
+                    }
+                    mClusterScanPosition = cursor.dataPosition() + Math.max(cursor.size(), 0);
+                    continue;
+                }
+
+                long start = cursor.position();
+                int last = mCueFrames.size() - 1;
+                int timecode = last >= 0 ? mCueFrames.getTimecode(last) : 0;
+                long end;
+                try {
+                    cursor.enter();
+                    while (cursor.next()) {
+                        // The timecode comes before any blocks
+                        if (cursor.id() == Cluster.TIMECODE) {
+                            timecode = (int) cursor.readUnsigned();
+                            break;
+                        } else if (cursor.id() == Cluster.SIMPLE_BLOCK
+                                || cursor.id() == Cluster.BLOCK_GROUP) {
+                            break;
+                        }
+                    }
+                    cursor.exit();
+                    end = clusterSource.position();
+                } catch (EOFException e) {
+                    end = length + 1;
+                }
+                if (end > length) {
+                    // The last cluster was cut off, keep what was written of it
+                    end = length;
+                }
+
+                if (last >= 0) {
+                    mCueFrames.setEnd(last, mCueFrames.getEndAddress(last), timecode);
+                }
+                int entry = mCueFrames.add(timecode, start);
+                mCueFrames.setEnd(entry, end - 1, duration);
+                mClusterScanPosition = end;
+                count++;
+            }
+            if (!hasMore || mClusterScanPosition >= length) {
+                mClusterScanPosition = -1;
+                mCueFrames.trim();
+                return false;
+            }
+            return true;
+        }
+    }
+
     /**
      * Quickly reads only the header of the cues to find the position of the first cluster entry
      * which leads you do the video data
@@ -783,10 +1720,10 @@ public class EBMLReader {
      * @throws IOException
      */
     public long readVideoStartAddressFromCues() throws IOException {
-        synchronized (mRanAccFile) {
+        synchronized (mSource) {
             getCuesDataLength();
             MasterElement pointNode = new MasterElement(Cues.POINT_NODE, mCuesPosition);
-            LongElement el = (LongElement) pointNode.parseElementIdOnce(mRanAccFile, Cues.CLUSTER_POSITION);
+            LongElement el = (LongElement) pointNode.parseElementIdOnce(mSource, Cues.CLUSTER_POSITION);
             return el.getData() + mPositionOffset;
         }
     }
@@ -838,6 +1775,264 @@ public class EBMLReader {
         return mAudioTracks;
     }
 
+    /**
+     * Builds the subtitle and audio tracks from each entry of a parsed tracks header
+     * @param tracksHeader parsed tracks
+     * @param subtitles list to add the subtitle tracks to
+     * @param audioTracks list to add the audio tracks to
+     * @param decoders map to add the content decoders of encoded tracks to, can be null
+     * @return the video track number
+     * @throws IOException
+     */
+    static int readTrackEntries(MasterElement tracksHeader, List<Subtitles> subtitles,
+                                List<AudioTrack> audioTracks,
+                                Map<Integer, ContentDecoder> decoders) throws IOException {
+        int videoTrackNumber = 0;
+        for (ElementBase el : tracksHeader.getElements()) {
+            MasterElement master = (MasterElement) el;
+            int type = master.getValueInt(Tracks.TYPE);
+            ContentDecoder decoder = ContentDecoder.fromTrackEntry(master);
+            if (decoder != null && decoders != null) {
+                decoders.put(master.getValueInt(Tracks.NUMBER), decoder);
+            }
+            if (type == Tracks.Type.VIDEO) {
+                videoTrackNumber = master.getValueInt(Tracks.NUMBER);
+            } else if (type == Tracks.Type.SUBTITLE) {
+                MasterElement masterSubTrack = (MasterElement) el;
+
+                // Subtitles that cannot be decoded would only give garbage
+                if (decoder != null && !decoder.isSupported()) {
+                    throw new UnsupportedOperationException("Cannot read subtitles track "
+                            + masterSubTrack.getValueInt(Tracks.NUMBER) + ": "
+                            + decoder.getUnsupportedReason());
+                }
+
+                Subtitles subs = Subtitles.CreateSubsFromBlockGroup(masterSubTrack, decoder);
+                assert (subs != null);
+                subtitles.add(subs);
+            } else if (type == Tracks.Type.AUDIO) {
+                AudioTrack audioTrack = AudioTrack.fromMasterTrackElement((MasterElement) el);
+                assert (audioTrack != null);
+                audioTracks.add(audioTrack);
+            }
+        }
+        return videoTrackNumber;
+    }
+
+    /**
+     * Sort each subtitle block group inside a parsed cluster into its subtitle track. Simple blocks
+     * are ignored since they have no duration and so do block groups of non subtitle tracks.
+     * @param clusterEl cluster parsed with subtitle blocks
+     * @param subtitles tracks to append the blocks to
+     * @return if any subtitles were appended
+     * @throws EBMLParsingException
+     */
+    static boolean appendClusterSubtitles(MasterElement clusterEl, List<Subtitles> subtitles)
+            throws EBMLParsingException {
+        boolean appended = false;
+        int timecode = 0;
+        for (ElementBase el : clusterEl.getElements()) {
+            if (el.getType() == NodeBase.Type.MASTER) {
+                BlockElement block = ((MasterElement) el).getBlockElement(Cluster.BLOCK_ID);
+                if (block != null) {
+                    int blockTrackNumber = block.getTrackNumber();
+                    for (Subtitles sub : subtitles) {
+                        if (sub.getTrackNumber() == blockTrackNumber) {
+                            sub.appendBlock(block, timecode,
+                                    ((MasterElement) el).getValueInt(Cluster.BLOCK_DURATION));
+                            appended = true;
+                        }
+                    }
+                }
+            } else if (el.getType() == NodeBase.Type.INT) {
+                if (el.id() == Cluster.TIMECODE) {
+                    timecode = ((IntElement) el).getData();
+                }
+            } else if (el.getType() != NodeBase.Type.BLOCK) {
+                throw new EBMLParsingException("Parsing cluster for subtitles gained useless data");
+            }
+        }
+        return appended;
+    }
+
+    /**
+     * Scan the clusters of a cue entry for subtitles, used when the cues do not have subtitle
+     * positions. The caller must hold the lock of the source or own it.
+     * @param source to read the clusters from
+     * @param parser that sorts the subtitles into their tracks
+     * @param index of the cue entry
+     * @return if any subtitles were read
+     * @throws IOException
+     */
+    private boolean scanCueFrame(EBMLSource source, ClusterSubtitlesParser parser, int index)
+            throws IOException {
+        return scanCueFrame(source, parser, index, null, 0);
+    }
+
+    /**
+     * Scan the clusters of a cue entry for subtitles and stop between clusters once the generation
+     * changes, the caller then has to drop what was read
+     * @param generation that is changed to stop or null to scan the whole entry
+     * @param expectedGeneration value of the generation to keep scanning
+     */
+    private boolean scanCueFrame(EBMLSource source, ClusterSubtitlesParser parser, int index,
+                                 AtomicInteger generation, int expectedGeneration)
+            throws IOException {
+        boolean parsedAtLeastOneSub = false;
+        long endAddress = mCueFrames.getEndAddress(index);
+        source.seek(mCueFrames.getStartAddress(index));
+        while (true) {
+            // Keep parsing till we reach the next cluster position set from Cues, each
+            // subtitle is sorted into its subtitle track as the cluster is scanned
+            boolean parsed;
+            try {
+                parsed = parser.parse(source);
+            } catch (EOFException e) {
+                // Only the last cluster of a file that was cut off can end early
+                if (endAddress < source.length() - 1) {
+                    throw e;
+                }
+                break;
+            }
+            if (!parsed) {
+                // End of clusters
+                if (endAddress != mCuesPosition - 1) {
+                    throw new EBMLParsingException("Unable to parse cluster header info");
+                }
+                break;
+            }
+
+            if (parser.hasAppended()) {
+                parsedAtLeastOneSub = true;
+            }
+
+            // Once we reach the next cluster position set from Cues, we can end the loop
+            // The last entry will have an end address right before the cues, so scan till end
+            if (endAddress != mCuesPosition - 1 && source.position() >= endAddress) {
+                break;
+            }
+            if (generation != null && generation.get() != expectedGeneration) {
+                break;
+            }
+        }
+        return parsedAtLeastOneSub;
+    }
+
+    private long findFirstClusterPosition(EBMLSource source) throws IOException {
+        long position = findPositionFromSegmentEntry(Cluster.ID);
+        if (position != 0) {
+            return position;
+        }
+
+        // Recordings usually do not list clusters in the seek head, walk the top level elements
+        long length = source.length();
+        position = mPositionOffset;
+        try {
+            while (position < length) {
+                source.seek(position);
+                if (ElementBase.readId(source) == Cluster.ID) {
+                    return position;
+                }
+                ElementBase.skipData(source);
+                position = source.position();
+            }
+        } catch (EOFException e) {
+            // The next element is not fully written yet
+        }
+        return 0;
+    }
+
+    // Add a cue entry for clusters that start with a video keyframe, otherwise extend the last one
+    private void recordFollowedCluster(MasterElement clusterEl, long start, long end) {
+        int timecode = clusterEl.getValueInt(Cluster.TIMECODE);
+        boolean hasKeyframe = false;
+        for (ElementBase el : clusterEl.getElements()) {
+            if (el.getType() == NodeBase.Type.BLOCK) {
+                BlockElement block = (BlockElement) el;
+                if (block.getTrackNumber() == mVideoTrackIndex && block.isKeyframe()) {
+                    hasKeyframe = true;
+                    break;
+                }
+            } else if (el.getType() == NodeBase.Type.MASTER) {
+                MasterElement group = (MasterElement) el;
+                BlockElement block = group.getBlockElement(Cluster.BLOCK_ID);
+                if (block != null && block.getTrackNumber() == mVideoTrackIndex
+                        && group.getElement(Cluster.REFERENCE_BLOCK) == null) {
+                    hasKeyframe = true;
+                    break;
+                }
+            }
+        }
+
+        int last = mCueFrames.size() - 1;
+        if (hasKeyframe || last < 0) {
+            if (last >= 0) {
+                mCueFrames.setEnd(last, mCueFrames.getEndAddress(last), timecode);
+            }
+            int entry = mCueFrames.add(timecode, start);
+            mCueFrames.setParsed(entry);
+            mCueFrames.setEndAddress(entry, end - 1);
+        } else {
+            mCueFrames.setEndAddress(last, end - 1);
+        }
+    }
+
+    // Clusters are scanned on their own read position so that it does not block other reads
+    private synchronized EBMLSource getClusterSource() throws IOException {
+        if (mClusterSource == null) {
+            mClusterSource = mSource.duplicate();
+        }
+        return mClusterSource;
+    }
+
+    // Reads the block or the block of the block group at the position without reading its data
+    private static BlockElement readBlockAt(EBMLSource source, long position) throws IOException {
+        EBMLCursor cursor = new EBMLCursor(source, position, ElementBase.UNKNOWN_LENGTH);
+        if (!cursor.next()) {
+            return null;
+        }
+        if (cursor.id() == Cluster.BLOCK_GROUP) {
+            cursor.enter();
+            boolean found = false;
+            while (cursor.next()) {
+                if (cursor.id() == Cluster.BLOCK_ID) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return null;
+            }
+        } else if (cursor.id() != Cluster.SIMPLE_BLOCK) {
+            return null;
+        }
+
+        // Read documentation to understand what this does
+        // http://www.matroska.org/technical/specs/index.html#block_structure
+        source.seek(cursor.dataPosition());
+        int trackNumber = (int) ElementBase.readLength(source);
+        int timecode = source.readShort();
+        int flags = source.readByte() & 0xFF;
+        long dataPosition = source.position();
+        int dataLength = (int) (cursor.dataPosition() + cursor.size() - dataPosition);
+        return BlockElement.create(cursor.id(), source, cursor.position(), cursor.size(),
+                trackNumber, timecode, flags, dataPosition, dataLength);
+    }
+
+    // The beginning of the file has the ebml header and the start of the segment, an index is only
+    // used when this is the same
+    private byte[] readIndexKeyBytes() throws IOException {
+        byte[] start = new byte[(int) Math.min(mSource.length(), INDEX_KEY_LENGTH)];
+        mSource.readFully(0, start, 0, start.length);
+        return start;
+    }
+
+    private static long hashIndexKey(byte[] start) {
+        CRC32 crc = new CRC32();
+        crc.update(start, 0, start.length);
+        return crc.getValue();
+    }
+
     private void scanForId(int id, int attempts) throws IOException {
         int b1 = (id >> 24) & 0xFF;
         int b2 = (id >> 16) & 0xFF;
@@ -845,14 +2040,14 @@ public class EBMLReader {
         int b4 = id & 0xFF;
 
         while (attempts > 0) {
-            if ((mRanAccFile.readByte() & 0xFF) == b1) {
-                if ((mRanAccFile.readByte() & 0xFF) == b2 && (mRanAccFile.readByte() & 0xFF) == b3
-                        && (mRanAccFile.readByte() & 0xFF) == b4) {
-                    mRanAccFile.seek(mRanAccFile.getFilePointer() - 4);
-                    mPositionOffset = mRanAccFile.getFilePointer();
+            if ((mSource.readByte() & 0xFF) == b1) {
+                if ((mSource.readByte() & 0xFF) == b2 && (mSource.readByte() & 0xFF) == b3
+                        && (mSource.readByte() & 0xFF) == b4) {
+                    mSource.seek(mSource.position() - 4);
+                    mPositionOffset = mSource.position();
                     return;
                 }
-                mRanAccFile.seek(mRanAccFile.getFilePointer() - 1);
+                mSource.seek(mSource.position() - 1);
             }
             attempts--;
         }
@@ -889,14 +2084,42 @@ public class EBMLReader {
         }
     }
 
+    private static MasterNode getTopLevelSchema(int id) {
+        switch (id) {
+            case Info.ID:
+                return Info.HEADER;
+            case Tracks.ID:
+                return Tracks.HEADER;
+            case Cluster.ID:
+                return Cluster.ENTRY;
+            case Cues.ID:
+                return Cues.HEADER;
+            case Attachments.ID:
+                return Attachments.HEADER;
+            case Chapters.ID:
+                return Chapters.HEADER;
+            case Tags.ID:
+                return Tags.HEADER;
+            default:
+                return null;
+        }
+    }
+
     private long findPositionFromSegmentEntry(int id) throws IOException {
-        for (MasterElement segmentHeader : mSegmentHeaders) {
-            MasterElement entry = segmentHeader.searchForMasterWithIntValue(
-                    Segment.SEEK_ID, id);
-            if (entry != null) {
-                return (entry.getValueLong(Segment.SEEK_POSITION) + mPositionOffset);
+        synchronized (mSeekPositions) {
+            // Add the entries of seek heads that were parsed since the last lookup
+            while (mSeekPositionsHeaderCount < mSegmentHeaders.size()) {
+                MasterElement segmentHeader = mSegmentHeaders.get(mSeekPositionsHeaderCount++);
+                for (ElementBase el : SEEK_ENTRIES.findAll(segmentHeader)) {
+                    MasterElement entry = (MasterElement) el;
+                    int entryId = entry.getValueInt(Segment.SEEK_ID, 0);
+                    if (entryId != 0 && !mSeekPositions.containsKey(entryId)) {
+                        mSeekPositions.put(entryId, entry.getValueLong(Segment.SEEK_POSITION));
+                    }
+                }
             }
+            Long position = mSeekPositions.get(id);
+            return position != null ? position + mPositionOffset : 0;
         }
-        return 0;
     }
 }
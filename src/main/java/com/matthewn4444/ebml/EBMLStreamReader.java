@@ -0,0 +1,250 @@
+package com.matthewn4444.ebml;
+
+import com.matthewn4444.ebml.elements.ElementBase;
+import com.matthewn4444.ebml.elements.MasterElement;
+import com.matthewn4444.ebml.io.EBMLSource;
+import com.matthewn4444.ebml.io.StreamSource;
+import com.matthewn4444.ebml.node.MasterNode;
+import com.matthewn4444.ebml.subtitles.Subtitles;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads an MKV file in a single forward pass for inputs that cannot seek such as pipes, sockets or
+ * stdin. Unlike EBMLReader this does not rely on the seek head or cues, each top level element
+ * of the segment is read as it arrives and subtitles are appended as soon as their cluster is read.
+ * Live recordings that leave the segment and cluster sizes unknown are supported, a cluster ends
+ * when the next top level element starts. Parsed clusters are not kept so memory stays constant
+ * other than the captions themselves.
+ *
+ * Usage:
+ *      EBMLStreamReader reader = new EBMLStreamReader(inputStream);
+ *      reader.setListener(listener);
+ *      if (reader.readHeader()) {
+ *          while (reader.readNext()) {
+ *              // Subtitles are given to the listener as they are read
+ *          }
+ *      }
+ *      reader.close();
+ */
+public class EBMLStreamReader {
+    /**
+     * Receives the data from the stream as it is being read
+     */
+    public interface Listener {
+        /**
+         * The tracks were read and the subtitle tracks can now receive captions
+         * @param subtitles all the subtitle tracks in this stream
+         */
+        void onTracksRead(List<Subtitles> subtitles);
+
+        /**
+         * New captions were appended to this subtitle track, use readUnreadSubtitles() to get them
+         * @param subtitles track that has new captions
+         */
+        void onSubtitlesAppended(Subtitles subtitles);
+    }
+
+    protected final EBMLSource mSource;
+
+    protected MasterElement mEmblHeader;
+    protected MasterElement mSeekHeader;
+    protected MasterElement mInfoHeader;
+    protected MasterElement mTracksHeader;
+
+    protected ArrayList<Subtitles> mSubtitles;
+    protected ArrayList<AudioTrack> mAudioTracks;
+    protected int mVideoTrackIndex;
+    protected float mDurationMs;
+
+    private Listener mListener;
+    private ClusterSubtitlesParser mClusterSubtitlesParser;
+
+    public EBMLStreamReader(InputStream in) {
+        this(new StreamSource(in));
+    }
+
+    public EBMLStreamReader(ReadableByteChannel channel) {
+        this(new StreamSource(channel));
+    }
+
+    /**
+     * Read from any source, only forward reads are done
+     * @param source to be read
+     */
+    public EBMLStreamReader(EBMLSource source) {
+        mSource = source;
+    }
+
+    /**
+     * Set the listener to be notified of tracks and subtitles as they are read
+     * @param listener to notify
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Closes the stream
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        mSource.close();
+    }
+
+    /**
+     * Read the EBML header and the start of the segment. This must be called first.
+     * @return if this stream is an MKV stream
+     * @throws IOException
+     */
+    public boolean readHeader() throws IOException {
+        if (mEmblHeader != null) {
+            return true;
+        }
+
+        mEmblHeader = new MasterElement(EBMLReader.EBML_ROOT, mSource.position());
+        if (!mEmblHeader.parse(mSource)) {
+            return false;
+        }
+        if (Segment.ID != ElementBase.readId(mSource)) {
+            throw new EBMLParsingException("Segment does not follow the EBML header, is this a valid mkv?");
+        }
+
+        // Segment size is not needed and live streams leave it unknown, everything after this is
+        // read till the stream ends
+        ElementBase.readLength(mSource);
+        return true;
+    }
+
+    /**
+     * Read the next top level element of the segment. Seek head, info and tracks are parsed and
+     * clusters have their subtitles appended to the subtitle tracks, everything else is skipped.
+     * @return false when the stream has ended
+     * @throws IOException
+     */
+    public boolean readNext() throws IOException {
+        if (mEmblHeader == null) {
+            throw new IllegalStateException("readHeader() was not called");
+        }
+        long position = mSource.position();
+        int id;
+        try {
+            id = ElementBase.readId(mSource);
+        } catch (EOFException e) {
+            return false;
+        }
+        mSource.seek(position);
+
+        switch (id) {
+            case Cluster.ID:
+                readCluster(position);
+                break;
+            case Segment.SEEK_HEAD:
+                mSeekHeader = parseMaster(Segment.HEADER, position);
+                break;
+            case Info.ID:
+                mInfoHeader = parseMaster(Info.HEADER, position);
+                int timescale = mInfoHeader.searchForIntValue(Info.TIMECODE_SCALE, EBMLReader.NS_TO_MS);
+                mDurationMs = mInfoHeader.searchForFloatValue(Info.DURATION, 0) / timescale
+                        * EBMLReader.NS_TO_MS;
+                break;
+            case Tracks.ID:
+                readTracks(position);
+                break;
+            default:
+                // Cues, attachments, chapters, tags and anything else are not needed
+                ElementBase.readId(mSource);
+                ElementBase.skipData(mSource);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Read the rest of the stream till it ends
+     * @throws IOException
+     */
+    public void readAll() throws IOException {
+        if (readHeader()) {
+            while (readNext()) {
+            }
+        }
+    }
+
+    /**
+     * Get the subtitles once the tracks have been read, null before that
+     * @return the subtitle tracks
+     */
+    public ArrayList<Subtitles> getSubtitles() {
+        return mSubtitles;
+    }
+
+    /**
+     * Get the audio tracks once the tracks have been read, null before that
+     * @return the audio tracks
+     */
+    public ArrayList<AudioTrack> getAudioTracks() {
+        return mAudioTracks;
+    }
+
+    /**
+     * Get the duration in milliseconds once the info has been read. Live streams may not have one.
+     * @return duration in ms
+     */
+    public float getDuration() {
+        return mDurationMs;
+    }
+
+    private MasterElement parseMaster(MasterNode node, long position)
+            throws IOException {
+        MasterElement master = new MasterElement(node, position);
+        if (!master.parse(mSource)) {
+            throw new EBMLParsingException("Unable to parse element at 0x" + Long.toHexString(position));
+        }
+        return master;
+    }
+
+    private void readTracks(long position) throws IOException {
+        mTracksHeader = parseMaster(Tracks.HEADER, position);
+        mSubtitles = new ArrayList<>();
+        mAudioTracks = new ArrayList<>();
+        mClusterSubtitlesParser = null;
+        mVideoTrackIndex = EBMLReader.readTrackEntries(mTracksHeader, mSubtitles, mAudioTracks,
+                null);
+        if (mListener != null) {
+            mListener.onTracksRead(mSubtitles);
+        }
+    }
+
+    private void readCluster(long position) throws IOException {
+        if (mSubtitles == null) {
+            // Tracks always come before clusters, without them we cannot tell what the blocks are
+            ElementBase.readId(mSource);
+            ElementBase.skipData(mSource);
+            return;
+        }
+        if (mClusterSubtitlesParser == null) {
+            mClusterSubtitlesParser = new ClusterSubtitlesParser(mSubtitles);
+        }
+
+        int[] counts = new int[mSubtitles.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = mSubtitles.get(i).getSubtitleCount();
+        }
+        if (!mClusterSubtitlesParser.parse(mSource)) {
+            throw new EBMLParsingException("Unable to parse cluster at 0x" + Long.toHexString(position));
+        }
+        if (mClusterSubtitlesParser.hasAppended() && mListener != null) {
+            for (int i = 0; i < counts.length; i++) {
+                if (mSubtitles.get(i).getSubtitleCount() > counts[i]) {
+                    mListener.onSubtitlesAppended(mSubtitles.get(i));
+                }
+            }
+        }
+    }
+}
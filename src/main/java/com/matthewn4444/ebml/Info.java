@@ -32,7 +32,7 @@ public class Info {
     static final MasterNode HEADER = new MasterNode(ID);
     static final MasterNode CHAPTER_TRANSLATE_NODE = new MasterNode(CHAPTER_TRANSLATE_ENTRY);
 
-    static void init() {
+    static {
         HEADER.addNode(CHAPTER_TRANSLATE_NODE);
         HEADER.addNode(new ByteNode(SEGMENT_UID));
         HEADER.addNode(new StringNode(SEGMENT_FILENAME));
@@ -41,7 +41,7 @@ public class Info {
         HEADER.addNode(new ByteNode(NEXT_UID));
         HEADER.addNode(new StringNode(NEXT_FILENAME));
         HEADER.addNode(new ByteNode(SEGMENT_FAMILY));
-        HEADER.addNode(new IntNode(TIMECODE_SCALE));
+        HEADER.addNode(new IntNode(TIMECODE_SCALE, 1000000));
         HEADER.addNode(new FloatNode(DURATION));
         HEADER.addNode(new LongNode(DATE));
         HEADER.addNode(new StringNode(TITLE));
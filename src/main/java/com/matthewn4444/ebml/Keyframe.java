@@ -0,0 +1,68 @@
+package com.matthewn4444.ebml;
+
+/**
+ * A cue track position of a track, which points to a keyframe in a cluster. Use
+ * EBMLReader.readKeyframeBlock() to read the block it points to.
+ */
+public final class Keyframe {
+    private final int mTrackNumber;
+    private final int mTime;
+    private final long mClusterPosition;
+    private final int mRelativePosition;
+    private final int mDuration;
+    private final int mBlockNumber;
+
+    Keyframe(int trackNumber, int time, long clusterPosition, int relativePosition, int duration,
+             int blockNumber) {
+        mTrackNumber = trackNumber;
+        mTime = time;
+        mClusterPosition = clusterPosition;
+        mRelativePosition = relativePosition;
+        mDuration = duration;
+        mBlockNumber = blockNumber;
+    }
+
+    public int getTrackNumber() {
+        return mTrackNumber;
+    }
+
+    /**
+     * Get the time of the keyframe
+     * @return time in ms
+     */
+    public int getTime() {
+        return mTime;
+    }
+
+    /**
+     * Get the position of the cluster that has the keyframe
+     * @return position in file
+     */
+    public long getClusterPosition() {
+        return mClusterPosition;
+    }
+
+    /**
+     * Get the position of the block inside the cluster, relative to the start of the cluster data
+     * @return relative position or 0 if the cues do not have it
+     */
+    public int getRelativePosition() {
+        return mRelativePosition;
+    }
+
+    /**
+     * Get the duration of the block
+     * @return duration or 0 if the cues do not have it
+     */
+    public int getDuration() {
+        return mDuration;
+    }
+
+    /**
+     * Get the number of the block in the cluster, starting from 1
+     * @return block number
+     */
+    public int getBlockNumber() {
+        return mBlockNumber;
+    }
+}
@@ -0,0 +1,142 @@
+package com.matthewn4444.ebml;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cue track positions of every track kept in parallel arrays for each track. The positions of a
+ * track are in the order of the cues, which are sorted by time.
+ */
+final class KeyframeIndex {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final HashMap<Integer, Track> mTracks = new HashMap<>();
+
+    private static final class Track {
+        int mCount;
+        int[] mTimes = new int[INITIAL_CAPACITY];
+        long[] mClusterPositions = new long[INITIAL_CAPACITY];
+        int[] mRelativePositions = new int[INITIAL_CAPACITY];
+        int[] mDurations = new int[INITIAL_CAPACITY];
+        int[] mBlockNumbers = new int[INITIAL_CAPACITY];
+
+        void add(int time, long clusterPosition, int relativePosition, int duration,
+                 int blockNumber) {
+            if (mCount == mTimes.length) {
+                resize(Math.max(mCount * 2, INITIAL_CAPACITY));
+            }
+            mTimes[mCount] = time;
+            mClusterPositions[mCount] = clusterPosition;
+            mRelativePositions[mCount] = relativePosition;
+            mDurations[mCount] = duration;
+            mBlockNumbers[mCount] = blockNumber;
+            mCount++;
+        }
+
+        void resize(int capacity) {
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mClusterPositions = Arrays.copyOf(mClusterPositions, capacity);
+            mRelativePositions = Arrays.copyOf(mRelativePositions, capacity);
+            mDurations = Arrays.copyOf(mDurations, capacity);
+            mBlockNumbers = Arrays.copyOf(mBlockNumbers, capacity);
+        }
+    }
+
+    void add(int trackNumber, int time, long clusterPosition, int relativePosition, int duration,
+             int blockNumber) {
+        Track track = mTracks.get(trackNumber);
+        if (track == null) {
+            track = new Track();
+            mTracks.put(trackNumber, track);
+        }
+        track.add(time, clusterPosition, relativePosition, duration, blockNumber);
+    }
+
+    int size(int trackNumber) {
+        Track track = mTracks.get(trackNumber);
+        return track != null ? track.mCount : 0;
+    }
+
+    Keyframe get(int trackNumber, int index) {
+        Track track = mTracks.get(trackNumber);
+        if (track == null || index < 0 || index >= track.mCount) {
+            throw new IndexOutOfBoundsException("No keyframe " + index + " for track "
+                    + trackNumber);
+        }
+        return new Keyframe(trackNumber, track.mTimes[index], track.mClusterPositions[index],
+                track.mRelativePositions[index], track.mDurations[index],
+                track.mBlockNumbers[index]);
+    }
+
+    /**
+     * Find the last keyframe of a track that is not after the time
+     * @param trackNumber of the keyframes
+     * @param time to search for
+     * @return index of the keyframe, 0 if all are after the time or -1 if the track has none
+     */
+    int floorOfTime(int trackNumber, int time) {
+        Track track = mTracks.get(trackNumber);
+        if (track == null || track.mCount == 0) {
+            return -1;
+        }
+        int low = 0;
+        int high = track.mCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (track.mTimes[mid] <= time) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Release the spare capacity once no more keyframes are added
+     */
+    void trim() {
+        for (Track track : mTracks.values()) {
+            track.resize(track.mCount);
+        }
+    }
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(mTracks.size());
+        for (Map.Entry<Integer, Track> entry : mTracks.entrySet()) {
+            Track track = entry.getValue();
+            out.writeInt(entry.getKey());
+            out.writeInt(track.mCount);
+            for (int i = 0; i < track.mCount; i++) {
+                out.writeInt(track.mTimes[i]);
+                out.writeLong(track.mClusterPositions[i]);
+                out.writeInt(track.mRelativePositions[i]);
+                out.writeInt(track.mDurations[i]);
+                out.writeInt(track.mBlockNumbers[i]);
+            }
+        }
+    }
+
+    static KeyframeIndex read(DataInputStream in) throws IOException {
+        KeyframeIndex index = new KeyframeIndex();
+        int trackCount = in.readInt();
+        for (int i = 0; i < trackCount; i++) {
+            int trackNumber = in.readInt();
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Invalid keyframe count " + count);
+            }
+            Track track = new Track();
+            track.resize(count);
+            for (int j = 0; j < count; j++) {
+                track.add(in.readInt(), in.readLong(), in.readInt(), in.readInt(), in.readInt());
+            }
+            index.mTracks.put(trackNumber, track);
+        }
+        return index;
+    }
+}
@@ -15,7 +15,7 @@ public final class Segment {
     static final MasterNode HEADER = new MasterNode(SEEK_HEAD);
     static final MasterNode ENTRY = new MasterNode(SEEK);
 
-    static void init() {
+    static {
         HEADER.addNode(ENTRY);
 
         ENTRY.addNode(new IntNode(SEEK));
@@ -0,0 +1,184 @@
+package com.matthewn4444.ebml;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the subtitles of a file on a background thread in the order they are needed for playback.
+ * The cue entries right ahead of the playback position are read first, then the rest of the file
+ * is back filled at a low thread priority. When the playback position moves, such as when the user
+ * seeks, the back fill that is being read is dropped so that the new position is read right away.
+ *
+ * Usage:
+ *      SubtitleScheduler scheduler = new SubtitleScheduler(reader, listener);
+ *      scheduler.start();
+ *      // When playing or seeking
+ *      scheduler.setPlaybackPosition(player.getCurrentPosition());
+ *      // Once done
+ *      scheduler.stop();
+ *
+ * Use getSubtitles().get(i).readUnreadSubtitles() on the reader to get the subtitles as they are
+ * read. The thread is never interrupted since that would close the file channel it reads from,
+ * stopping waits for the cue entry being read.
+ */
+public class SubtitleScheduler {
+    private static final String THREAD_NAME = "SubtitleScheduler";
+
+    public static final int DEFAULT_LOOK_AHEAD_MS = 30 * 1000;
+
+    private final EBMLReader mReader;
+    private final Listener mListener;
+    private final Object mLock = new Object();
+
+    // Changed on each seek to cancel the back fill that is being read
+    private final AtomicInteger mGeneration = new AtomicInteger();
+
+    private volatile int mPlaybackPosition;
+    private volatile int mLookAheadMs = DEFAULT_LOOK_AHEAD_MS;
+    private volatile boolean mIsRunning;
+    private volatile boolean mIsFinished;
+    private Thread mThread;
+
+    public interface Listener {
+        /**
+         * Subtitles were read from a cue entry, this is called on the background thread
+         * @param cueIndex of the entry
+         */
+        void onSubtitlesRead(int cueIndex);
+
+        /**
+         * All the subtitles of the file were read, this is called on the background thread
+         */
+        void onFinished();
+
+        /**
+         * Reading stopped because of an error, this is called on the background thread
+         * @param e the error
+         */
+        void onError(Exception e);
+    }
+
+    /**
+     * @param reader that has read the header and tracks, cues are read on the background thread
+     *               if they were not already
+     * @param listener to be told when subtitles are read, can be null
+     */
+    public SubtitleScheduler(EBMLReader reader, Listener listener) {
+        mReader = reader;
+        mListener = listener;
+    }
+
+    /**
+     * Set how far ahead of the playback position is read before the rest of the file
+     * @param lookAheadMs time in ms
+     */
+    public void setLookAhead(int lookAheadMs) {
+        mLookAheadMs = lookAheadMs;
+    }
+
+    /**
+     * Move the playback position, call this when playback starts and whenever the user seeks.
+     * Back fill that is being read is dropped and read again later.
+     * @param positionMs time in ms
+     */
+    public void setPlaybackPosition(int positionMs) {
+        mPlaybackPosition = positionMs;
+        mGeneration.incrementAndGet();
+    }
+
+    public int getPlaybackPosition() {
+        return mPlaybackPosition;
+    }
+
+    /**
+     * Start reading on a background thread
+     */
+    public void start() {
+        synchronized (mLock) {
+            if (mThread != null) {
+                throw new IllegalStateException("Scheduler was already started");
+            }
+            mIsRunning = true;
+            mThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    runLoop();
+                }
+            }, THREAD_NAME);
+            mThread.setPriority(Thread.MIN_PRIORITY);
+            mThread.start();
+        }
+    }
+
+    /**
+     * Stop reading and wait for the cue entry that is being read, back fill is dropped
+     * @throws InterruptedException if the calling thread was interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (mLock) {
+            mIsRunning = false;
+            mGeneration.incrementAndGet();
+            thread = mThread;
+        }
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Check if all the subtitles of the file were read
+     * @return if it finished
+     */
+    public boolean isFinished() {
+        return mIsFinished;
+    }
+
+    private void runLoop() {
+        try {
+            if (mReader.mCueFrames == null) {
+                mReader.readCues();
+            }
+            while (mIsRunning) {
+                int generation = mGeneration.get();
+                int position = mPlaybackPosition;
+                int start = mReader.getCuesCount() > 0 ? mReader.getCueIndexAtTime(position) : 0;
+
+                // Read ahead of the playback position first, then everything after it and then
+                // back fill from the start of the file
+                boolean isAhead = true;
+                int index = mReader.nextUnparsedCueFrame(start);
+                if (index < 0 || mReader.getCueTimecode(index) > position + mLookAheadMs) {
+                    isAhead = false;
+                    if (index < 0) {
+                        index = mReader.nextUnparsedCueFrame(0);
+                    }
+                }
+                if (index < 0) {
+                    mIsFinished = true;
+                    if (mListener != null) {
+                        mListener.onFinished();
+                    }
+                    break;
+                }
+
+                Thread.currentThread().setPriority(isAhead ? Thread.NORM_PRIORITY
+                        : Thread.MIN_PRIORITY);
+                boolean read = isAhead
+                        ? mReader.readSubtitlesInCueFrame(index, new AtomicInteger(), 0)
+                        : mReader.readSubtitlesInCueFrame(index, mGeneration, generation);
+                if (read && mListener != null) {
+                    mListener.onSubtitlesRead(index);
+                }
+            }
+        } catch (Exception e) {
+            if (mListener != null) {
+                mListener.onError(e);
+            }
+        } finally {
+            synchronized (mLock) {
+                mIsRunning = false;
+                mThread = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.matthewn4444.ebml;
+
+import com.matthewn4444.ebml.node.ByteNode;
+import com.matthewn4444.ebml.node.IntNode;
+import com.matthewn4444.ebml.node.LongNode;
+import com.matthewn4444.ebml.node.MasterNode;
+import com.matthewn4444.ebml.node.StringNode;
+
+public class Tags {
+    public static final int ID = 0x1254C367;
+    public static final int TAG = 0x7373;
+
+    // Tag Values
+    public static final int TARGETS = 0x63C0;
+    public static final int SIMPLE_TAG = 0x67C8;
+
+    // Targets Values
+    public static final int TARGET_TYPE_VALUE = 0x68CA;
+    public static final int TARGET_TYPE = 0x63CA;
+    public static final int TRACK_UID = 0x63C5;
+    public static final int EDITION_UID = 0x63C9;
+    public static final int CHAPTER_UID = 0x63C4;
+    public static final int ATTACHMENT_UID = 0x63C6;
+
+    // Simple Tag Values
+    public static final int NAME = 0x45A3;
+    public static final int LANGUAGE = 0x447A;
+    public static final int DEFAULT = 0x4484;
+    public static final int STRING = 0x4487;
+    public static final int BINARY = 0x4485;
+
+    static final MasterNode HEADER = new MasterNode(ID);
+    static final MasterNode TAG_NODE = new MasterNode(TAG);
+    static final MasterNode TARGETS_NODE = new MasterNode(TARGETS);
+    static final MasterNode SIMPLE_TAG_NODE = new MasterNode(SIMPLE_TAG);
+
+    static {
+        HEADER.addNode(TAG_NODE);
+
+        TAG_NODE.addNode(TARGETS_NODE);
+        TAG_NODE.addNode(SIMPLE_TAG_NODE);
+
+        TARGETS_NODE.addNode(new IntNode(TARGET_TYPE_VALUE, 50));
+        TARGETS_NODE.addNode(new StringNode(TARGET_TYPE));
+        TARGETS_NODE.addNode(new LongNode(TRACK_UID));
+        TARGETS_NODE.addNode(new LongNode(EDITION_UID));
+        TARGETS_NODE.addNode(new LongNode(CHAPTER_UID));
+        TARGETS_NODE.addNode(new LongNode(ATTACHMENT_UID));
+
+        // Tags can be nested
+        SIMPLE_TAG_NODE.addNode(SIMPLE_TAG_NODE);
+        SIMPLE_TAG_NODE.addNode(new StringNode(NAME));
+        SIMPLE_TAG_NODE.addNode(new StringNode(LANGUAGE, "und"));
+        SIMPLE_TAG_NODE.addNode(new IntNode(DEFAULT, 1));
+        SIMPLE_TAG_NODE.addNode(new StringNode(STRING));
+        SIMPLE_TAG_NODE.addNode(new ByteNode(BINARY));
+    }
+
+    private Tags() {}
+}
@@ -1,5 +1,6 @@
 package com.matthewn4444.ebml;
 
+import com.matthewn4444.ebml.node.ByteNode;
 import com.matthewn4444.ebml.node.FloatNode;
 import com.matthewn4444.ebml.node.IntNode;
 import com.matthewn4444.ebml.node.LongNode;
@@ -35,6 +36,7 @@ public abstract class Tracks {
     public static final int OVERLAY = 0x6FAB;
     public static final int CODEC_DELAY = 0x56AA;
     public static final int TIMECODE_SCALE = 0x23314F;
+    public static final int SEEK_PRE_ROLL = 0x56BB;
 
     // Video Entry Values
     public static final int FLAG_INTERLACED = 0x9A;
@@ -51,6 +53,34 @@ public abstract class Tracks {
     public static final int DISPLAY_UNIT = 0x54B2;
     public static final int ASPECT_RATIO = 0x54B3;
     public static final int COLOR_SPACE = 0x2EB524;
+    public static final int FRAME_RATE = 0x2383E3;
+    public static final int COLOUR = 0x55B0;
+
+    // Colour Values
+    public static final int MATRIX_COEFFICIENTS = 0x55B1;
+    public static final int BITS_PER_CHANNEL = 0x55B2;
+    public static final int CHROMA_SUBSAMPLING_HORZ = 0x55B3;
+    public static final int CHROMA_SUBSAMPLING_VERT = 0x55B4;
+    public static final int CB_SUBSAMPLING_HORZ = 0x55B5;
+    public static final int CB_SUBSAMPLING_VERT = 0x55B6;
+    public static final int CHROMA_SITING_HORZ = 0x55B7;
+    public static final int CHROMA_SITING_VERT = 0x55B8;
+    public static final int RANGE = 0x55B9;
+    public static final int TRANSFER_CHARACTERISTICS = 0x55BA;
+    public static final int PRIMARIES = 0x55BB;
+    public static final int MAX_CLL = 0x55BC;
+    public static final int MAX_FALL = 0x55BD;
+    public static final int MASTERING_METADATA = 0x55D0;
+    public static final int PRIMARY_R_CHROMATICITY_X = 0x55D1;
+    public static final int PRIMARY_R_CHROMATICITY_Y = 0x55D2;
+    public static final int PRIMARY_G_CHROMATICITY_X = 0x55D3;
+    public static final int PRIMARY_G_CHROMATICITY_Y = 0x55D4;
+    public static final int PRIMARY_B_CHROMATICITY_X = 0x55D5;
+    public static final int PRIMARY_B_CHROMATICITY_Y = 0x55D6;
+    public static final int WHITE_POINT_CHROMATICITY_X = 0x55D7;
+    public static final int WHITE_POINT_CHROMATICITY_Y = 0x55D8;
+    public static final int LUMINANCE_MAX = 0x55D9;
+    public static final int LUMINANCE_MIN = 0x55DA;
 
     // Audio Entry Values
     public static final int SAMPLING_FREQUENCY = 0xB5;
@@ -95,31 +125,34 @@ public abstract class Tracks {
     static final MasterNode CONTENT_ENCODING_NODE = new MasterNode(CONTENT_ENCODING);
     static final MasterNode CONTENT_COMPRESSION_NODE = new MasterNode(CONTENT_COMPRESSION);
     static final MasterNode CONTENT_ENCYPTION_NODE = new MasterNode(CONTENT_ENCRYPTION);
+    static final MasterNode COLOUR_NODE = new MasterNode(COLOUR);
+    static final MasterNode MASTERING_METADATA_NODE = new MasterNode(MASTERING_METADATA);
 
-    static void init() {
+    static {
         HEADER.addNode(ENTRY_NODE);
 
         ENTRY_NODE.addNode(new IntNode(NUMBER));
         ENTRY_NODE.addNode(new LongNode(UID));
         ENTRY_NODE.addNode(new IntNode(TYPE));
-        ENTRY_NODE.addNode(new IntNode(IS_ENABLED));
-        ENTRY_NODE.addNode(new IntNode(IS_DEFAULT));
+        ENTRY_NODE.addNode(new IntNode(IS_ENABLED, 1));
+        ENTRY_NODE.addNode(new IntNode(IS_DEFAULT, 1));
         ENTRY_NODE.addNode(new IntNode(FLAG_FORCED));
-        ENTRY_NODE.addNode(new IntNode(FLAG_LACED));
+        ENTRY_NODE.addNode(new IntNode(FLAG_LACED, 1));
         ENTRY_NODE.addNode(new IntNode(MIN_CACHE));
         ENTRY_NODE.addNode(new IntNode(MAX_CACHE));
         ENTRY_NODE.addNode(new IntNode(DEFAULT_DURATION));
         ENTRY_NODE.addNode(new IntNode(MAX_BLOCK_ADDITION_ID));
         ENTRY_NODE.addNode(new StringNode(NAME));
-        ENTRY_NODE.addNode(new StringNode(LANGUAGE));
+        ENTRY_NODE.addNode(new StringNode(LANGUAGE, "eng"));
         ENTRY_NODE.addNode(new StringNode(CODEC_ID));
         ENTRY_NODE.addNode(new StringNode(CODEC_PRIVATE));
         ENTRY_NODE.addNode(new StringNode(CODEC_NAME));
         ENTRY_NODE.addNode(new IntNode(ATTACHMENT_LINK));
-        ENTRY_NODE.addNode(new IntNode(CODEC_DECODE_ALL));
+        ENTRY_NODE.addNode(new IntNode(CODEC_DECODE_ALL, 1));
         ENTRY_NODE.addNode(new IntNode(OVERLAY));
         ENTRY_NODE.addNode(new IntNode(CODEC_DELAY));
-        ENTRY_NODE.addNode(new IntNode(TIMECODE_SCALE));
+        ENTRY_NODE.addNode(new FloatNode(TIMECODE_SCALE, 1));
+        ENTRY_NODE.addNode(new LongNode(SEEK_PRE_ROLL));
         ENTRY_NODE.addNode(VIDEO_ENTRY_NODE);
         ENTRY_NODE.addNode(AUDIO_ENTRY_NODE);
         ENTRY_NODE.addNode(CONTENT_ENCODINGS_NODE);
@@ -137,23 +170,51 @@ public abstract class Tracks {
         VIDEO_ENTRY_NODE.addNode(new IntNode(DISPLAY_HEIGHT));
         VIDEO_ENTRY_NODE.addNode(new IntNode(DISPLAY_UNIT));
         VIDEO_ENTRY_NODE.addNode(new IntNode(ASPECT_RATIO));
-        VIDEO_ENTRY_NODE.addNode(new IntNode(COLOR_SPACE));
+        VIDEO_ENTRY_NODE.addNode(new ByteNode(COLOR_SPACE));
+        VIDEO_ENTRY_NODE.addNode(new FloatNode(FRAME_RATE));
+        VIDEO_ENTRY_NODE.addNode(COLOUR_NODE);
+
+        COLOUR_NODE.addNode(new IntNode(MATRIX_COEFFICIENTS, 2));
+        COLOUR_NODE.addNode(new IntNode(BITS_PER_CHANNEL));
+        COLOUR_NODE.addNode(new IntNode(CHROMA_SUBSAMPLING_HORZ));
+        COLOUR_NODE.addNode(new IntNode(CHROMA_SUBSAMPLING_VERT));
+        COLOUR_NODE.addNode(new IntNode(CB_SUBSAMPLING_HORZ));
+        COLOUR_NODE.addNode(new IntNode(CB_SUBSAMPLING_VERT));
+        COLOUR_NODE.addNode(new IntNode(CHROMA_SITING_HORZ));
+        COLOUR_NODE.addNode(new IntNode(CHROMA_SITING_VERT));
+        COLOUR_NODE.addNode(new IntNode(RANGE));
+        COLOUR_NODE.addNode(new IntNode(TRANSFER_CHARACTERISTICS, 2));
+        COLOUR_NODE.addNode(new IntNode(PRIMARIES, 2));
+        COLOUR_NODE.addNode(new IntNode(MAX_CLL));
+        COLOUR_NODE.addNode(new IntNode(MAX_FALL));
+        COLOUR_NODE.addNode(MASTERING_METADATA_NODE);
+
+        MASTERING_METADATA_NODE.addNode(new FloatNode(PRIMARY_R_CHROMATICITY_X));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(PRIMARY_R_CHROMATICITY_Y));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(PRIMARY_G_CHROMATICITY_X));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(PRIMARY_G_CHROMATICITY_Y));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(PRIMARY_B_CHROMATICITY_X));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(PRIMARY_B_CHROMATICITY_Y));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(WHITE_POINT_CHROMATICITY_X));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(WHITE_POINT_CHROMATICITY_Y));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(LUMINANCE_MAX));
+        MASTERING_METADATA_NODE.addNode(new FloatNode(LUMINANCE_MIN));
 
-        AUDIO_ENTRY_NODE.addNode(new FloatNode(SAMPLING_FREQUENCY));
+        AUDIO_ENTRY_NODE.addNode(new FloatNode(SAMPLING_FREQUENCY, 8000));
         AUDIO_ENTRY_NODE.addNode(new FloatNode(OUTPUT_SAMPLING_FREQUENCY));
-        AUDIO_ENTRY_NODE.addNode(new IntNode(CHANNELS));
+        AUDIO_ENTRY_NODE.addNode(new IntNode(CHANNELS, 1));
         AUDIO_ENTRY_NODE.addNode(new IntNode(BIT_DEPTH));
 
         CONTENT_ENCODINGS_NODE.addNode(CONTENT_ENCODING_NODE);
 
         CONTENT_ENCODING_NODE.addNode(new IntNode(CONTENT_ENCODING_ORDER));
-        CONTENT_ENCODING_NODE.addNode(new IntNode(CONTENT_ENCODING_SCOPE));
+        CONTENT_ENCODING_NODE.addNode(new IntNode(CONTENT_ENCODING_SCOPE, 1));
         CONTENT_ENCODING_NODE.addNode(new IntNode(CONTENT_ENCODING_TYPE));
         CONTENT_ENCODING_NODE.addNode(CONTENT_COMPRESSION_NODE);
         CONTENT_ENCODING_NODE.addNode(CONTENT_ENCYPTION_NODE);
 
         CONTENT_COMPRESSION_NODE.addNode(new IntNode(CONTENT_COMP_ALGO));
-        CONTENT_COMPRESSION_NODE.addNode(new StringNode(CONTENT_COMP_SETTINGS));
+        CONTENT_COMPRESSION_NODE.addNode(new ByteNode(CONTENT_COMP_SETTINGS, true));
 
         CONTENT_ENCYPTION_NODE.addNode(new IntNode(CONTENT_ENC_ALGO));
         CONTENT_ENCYPTION_NODE.addNode(new StringNode(CONTENT_ENC_KEY_ID));
@@ -2,13 +2,11 @@ package com.matthewn4444.ebml.elements;
 
 import android.util.Log;
 
-import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.BlockNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.Set;
 
 /**
  * A block element is simple representation of a BLOCK object represented in the EBML documentation.
@@ -17,7 +15,7 @@ import java.util.Set;
  * This will contain all the information gained from parsing track data from cluster entries
  */
 public class BlockElement extends ElementBase {
-    private final RandomAccessFile mRaf;
+    private final EBMLSource mSource;
 
     private int mTrackNumber;
     private int mTimecode;
@@ -25,55 +23,99 @@ public class BlockElement extends ElementBase {
 
     private long mDataPosition;
     private int mDataLength;
+    private byte[] mData;
 
     /**
      * Quickly scan the block data whether to read it or not depending if we whitelisted the track
      * number of this block of data
-     * @param raf file stream
+     * @param source to read from
      * @param validNumbers whitelist of valid track numbers
      * @return whether to skip or not
      * @throws IOException
      */
-    static boolean skipBlockIfNotTrackNumber(RandomAccessFile raf, Set<Integer> validNumbers) throws IOException {
-        long startPos = raf.getFilePointer();
-        int len = readLength(raf);
-        long anchorPos = raf.getFilePointer();
-        int trackNumber = readLength(raf);
-        if (!validNumbers.contains(trackNumber)) {
+    static boolean skipBlockIfNotTrackNumber(EBMLSource source, ParseProjection projection)
+            throws IOException {
+        long startPos = source.position();
+        long len = readLength(source);
+        long anchorPos = source.position();
+        int trackNumber = (int) readLength(source);
+        if (!projection.includesTrack(trackNumber)) {
             // Track number is not allowed, skip
-            raf.seek(anchorPos + len);
+            source.seek(anchorPos + len);
             return true;
         }
         // This is allowed, go back
-        raf.seek(startPos);
+        source.seek(startPos);
         return false;
     }
 
-    BlockElement(BlockNode node, RandomAccessFile raf, long position) {
+    BlockElement(BlockNode node, EBMLSource source, long position) {
         super(NodeBase.Type.BLOCK, node.id(), position);
-        mRaf = raf;
+        mSource = source;
         mTrackNumber = 0;
         mTimecode = 0;
         mFlag = 0;
     }
 
     /**
-     * Get the bytes of data, could be compressed
+     * Create a block from what the event parser has already read. When the source cannot seek,
+     * the source must be at the frame data which is read now.
+     */
+    BlockElement(int id, EBMLSource source, long position, long innerLength, int trackNumber,
+                 int timecode, int flag, long dataPosition, int dataLength) throws IOException {
+        super(NodeBase.Type.BLOCK, id, position);
+        mSource = source;
+        mTrackNumber = trackNumber;
+        mTimecode = timecode;
+        mFlag = flag;
+        mInnerLength = innerLength;
+        mDataPosition = dataPosition;
+        mDataLength = dataLength;
+        mLength = dataPosition + dataLength - position;
+        if (!source.isSeekable()) {
+            mData = new byte[mDataLength];
+            source.seek(dataPosition);
+            source.readFully(mData, 0, mDataLength);
+        }
+    }
+
+    /**
+     * Create a block from values that were kept from an earlier parse, such as from an index file.
+     * The data is read from the source when it is asked for.
+     * @param id of the block, Cluster.BLOCK or Cluster.SIMPLE_BLOCK
+     * @param source to read the data from later
+     * @param position of the block in file
+     * @param dataSize size of the block after its id and size
+     * @param trackNumber of the block
+     * @param timecode of the block relative to its cluster
+     * @param flags of the block
+     * @param dataPosition position of the frame data in file
+     * @param dataLength length of the frame data
+     * @return the block
+     * @throws IOException
+     */
+    public static BlockElement create(int id, EBMLSource source, long position, long dataSize,
+                                      int trackNumber, int timecode, int flags,
+                                      long dataPosition, int dataLength) throws IOException {
+        return new BlockElement(id, source, position, dataSize, trackNumber, timecode, flags,
+                dataPosition, dataLength);
+    }
+
+    /**
+     * Get the bytes of data, could be compressed. Laced frames are not split, the data is
+     * everything after the flags.
+     * This reads at the data's position without moving the source so it does not wait on threads
+     * that are parsing the same file.
      * @return data
      */
     public byte[] readData() throws IOException {
-        synchronized (mRaf) {
-            // TODO refactor this code with byteElement in super class
-            long pos = mRaf.getFilePointer();
-            try {
-                mRaf.seek(mDataPosition);
-                byte[] data = new byte[mDataLength];
-                mRaf.read(data);
-                return data;
-            } finally {
-                mRaf.seek(pos);
-            }
+        if (mData != null) {
+            return mData;
         }
+        // TODO refactor this code with byteElement in super class
+        byte[] data = new byte[mDataLength];
+        mSource.readFully(mDataPosition, data, 0, mDataLength);
+        return data;
     }
 
     /**
@@ -92,22 +134,54 @@ public class BlockElement extends ElementBase {
         return mTimecode;
     }
 
+    /**
+     * Get the flags byte of the block, which has the keyframe, invisible and lacing bits
+     * @return flags from 0 to 255
+     */
+    public int getFlags() {
+        return mFlag;
+    }
+
+    /**
+     * Get the position of the frame data, which is after the track number, timecode and flags
+     * @return position in file
+     */
+    public long getDataPosition() {
+        return mDataPosition;
+    }
+
+    public int getDataLength() {
+        return mDataLength;
+    }
+
+    /**
+     * Get whether this block is a keyframe. Only simple blocks store this flag, blocks inside a
+     * block group are keyframes when the group has no reference block.
+     * @return if the keyframe flag is set
+     */
+    public boolean isKeyframe() {
+        return (mFlag & 0x80) != 0;
+    }
+
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
         // Read documentation to understand what this does
         // http://www.matroska.org/technical/specs/index.html#block_structure
-        long start = raf.getFilePointer();
-        mTrackNumber = readLength(raf);
-        mTimecode = raf.readShort();
-        mFlag = raf.readByte();
-        if (mFlag >= 5) {
-            throw new EBMLParsingException("Parsing block entries with flags above 5 is not implemented yet");
-        }
-        mDataPosition = raf.getFilePointer();
+        long start = source.position();
+        mTrackNumber = (int) readLength(source);
+        mTimecode = source.readShort();
+        mFlag = source.readByte() & 0xFF;
+        mDataPosition = source.position();
         mDataLength = (int)(mInnerLength - (mDataPosition - start));
-        raf.skipBytes(mDataLength);
+        if (source.isSeekable()) {
+            source.skip(mDataLength);
+        } else {
+            // The data cannot be read later, keep it now
+            mData = new byte[mDataLength];
+            source.readFully(mData, 0, mDataLength);
+        }
         return true;
     }
 
@@ -2,42 +2,53 @@ package com.matthewn4444.ebml.elements;
 
 import android.util.Log;
 
+import com.matthewn4444.ebml.EBMLException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.ByteNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 /**
  * Similar to StringElement but this will not allocate nor copy the data from the file stream.
- * You can access the data later if you need it
+ * You can access the data later if you need it, unless the node keeps the data which is then read
+ * when parsed
  */
 public class ByteElement extends ElementBase {
+    private final boolean mKeepsData;
     private long mDataPosition;
+    private byte[] mData;
 
     ByteElement(ByteNode node, long position) {
         super(NodeBase.Type.BYTES, node.id(), position);
+        mKeepsData = node.keepsData();
     }
 
     /**
      * Allocates and returns the data of this element
-     * @param raf file stream
+     * @param source to read from
      * @return data
      * @throws IOException
      */
-    public byte[] getData(RandomAccessFile raf) throws IOException {
-        synchronized (raf) {
-            long oldPointer = raf.getFilePointer();
-            raf.seek(mDataPosition);
-            byte[] buffer = new byte[(int) mInnerLength];
-            raf.read(buffer);
-            raf.seek(oldPointer);
-            return buffer;
+    public byte[] getData(EBMLSource source) throws IOException {
+        if (mData != null) {
+            return mData.clone();
         }
+        byte[] buffer = new byte[(int) mInnerLength];
+        source.readFully(mDataPosition, buffer, 0, buffer.length);
+        return buffer;
     }
 
     /**
-     * Get the position of the data using RandomAccessFile.seek()
+     * Get the data that was read when parsed
+     * @return data or null if the node does not keep its data
+     */
+    public byte[] getData() {
+        return mData != null ? mData.clone() : null;
+    }
+
+    /**
+     * Get the position of the data using EBMLSource.seek()
      * @return position
      */
     public long getPosition() {
@@ -53,11 +64,19 @@ public class ByteElement extends ElementBase {
     }
 
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
-        mDataPosition = raf.getFilePointer();
-        raf.seek(mInnerLength + mDataPosition);
+        mDataPosition = source.position();
+        if (mKeepsData) {
+            if ((int) mInnerLength != mInnerLength) {
+                throw new EBMLException("Cannot use length as buffer because it is too long!");
+            }
+            mData = new byte[(int) mInnerLength];
+            source.readFully(mData, 0, mData.length);
+        } else {
+            source.seek(mInnerLength + mDataPosition);
+        }
         return true;
     }
 
@@ -4,13 +4,11 @@ package com.matthewn4444.ebml.elements;
 import android.util.Log;
 
 import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.FloatNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
 public class DoubleElement extends ElementBase {
     private double mData;
@@ -29,16 +27,14 @@ public class DoubleElement extends ElementBase {
     }
 
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
         if (mInnerLength == 8) {
-            byte[] bytes = new byte[8];
-            raf.read(bytes);
-            mData = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN).getDouble();
+            mData = source.readDouble();
         } else {
             throw new EBMLParsingException("get double [id= " + hexId() + " @ 0x" +
-                    Long.toHexString(raf.getFilePointer()) + "] with len = " + mInnerLength
+                    Long.toHexString(source.position()) + "] with len = " + mInnerLength
                     + " is not supported");
         }
         return true;
@@ -0,0 +1,301 @@
+package com.matthewn4444.ebml.elements;
+
+import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Pull parser that walks EBML elements one at a time without building a tree of elements. Only
+ * the id, size and position of the current element are kept, so walking large sections such as
+ * cues or clusters does not allocate anything per element.
+ *
+ * Usage:
+ *      EBMLCursor cursor = new EBMLCursor(source);
+ *      while (cursor.next()) {
+ *          if (cursor.id() == Cues.POINT) {
+ *              cursor.enter();
+ *              while (cursor.next()) {
+ *                  if (cursor.id() == Cues.TIME) {
+ *                      long time = cursor.readUnsigned();
+ *                  }
+ *              }
+ *              cursor.exit();
+ *          }
+ *      }
+ *
+ * Data of the current element that is not read is skipped on the next call to next(). The cursor
+ * moves the source, so callers that share the source must hold its lock while walking.
+ */
+public class EBMLCursor {
+    private static final int INITIAL_DEPTH = 8;
+
+    private final EBMLSource mSource;
+
+    // End position and id of each entered element, the first is the end of the walked region
+    private long[] mEnds;
+    private int[] mParentIds;
+    private int mDepth;
+
+    private int mId;
+    private long mSize;
+    private long mPosition;
+    private long mDataPosition;
+    private boolean mHasElement;
+
+    /**
+     * Walk the elements from the current position of the source till the end of the data
+     * @param source to read from
+     */
+    public EBMLCursor(EBMLSource source) {
+        this(source, source.position(), ElementBase.UNKNOWN_LENGTH);
+    }
+
+    /**
+     * Walk the elements in a region of the source
+     * @param source to read from
+     * @param position to start at
+     * @param length of the region or UNKNOWN_LENGTH to read till the end of the data
+     */
+    public EBMLCursor(EBMLSource source, long position, long length) {
+        mSource = source;
+        mEnds = new long[INITIAL_DEPTH];
+        mParentIds = new int[INITIAL_DEPTH];
+        reset(position, length);
+    }
+
+    /**
+     * Start walking another region of the source, this allows reusing the cursor
+     * @param position to start at
+     * @param length of the region or UNKNOWN_LENGTH to read till the end of the data
+     */
+    public void reset(long position, long length) {
+        mDepth = 0;
+        mEnds[0] = length == ElementBase.UNKNOWN_LENGTH ? Long.MAX_VALUE : position + length;
+        mHasElement = false;
+        mDataPosition = position;
+        mSize = 0;
+    }
+
+    /**
+     * Move to the next element in the current level
+     * @return false when there are no more elements in this level
+     * @throws IOException
+     */
+    public boolean next() throws IOException {
+        long position = mHasElement ? endOfElement() : mDataPosition;
+        mHasElement = false;
+        long end = mEnds[mDepth];
+        if (position >= end) {
+            mDataPosition = position;
+            mSize = 0;
+            return false;
+        }
+
+        mSource.seek(position);
+        int id;
+        long size;
+        try {
+            id = ElementBase.readId(mSource);
+            if (end == Long.MAX_VALUE && mDepth > 0
+                    && ElementBase.endsUnknownSize(mParentIds[mDepth], id)) {
+                // Parent has an unknown size and this element cannot be inside it
+                mSource.seek(position);
+                mEnds[mDepth] = position;
+                mDataPosition = position;
+                mSize = 0;
+                return false;
+            }
+            size = ElementBase.readLength(mSource);
+        } catch (EOFException e) {
+            if (end != Long.MAX_VALUE) {
+                throw e;
+            }
+            mEnds[mDepth] = position;
+            mDataPosition = position;
+            mSize = 0;
+            return false;
+        }
+        mId = id;
+        mSize = size;
+        mPosition = position;
+        mDataPosition = mSource.position();
+        mHasElement = true;
+        return true;
+    }
+
+    /**
+     * Get the id of the current element
+     * @return id
+     */
+    public int id() {
+        return mId;
+    }
+
+    /**
+     * Get the size of the data of the current element
+     * @return size or UNKNOWN_LENGTH
+     */
+    public long size() {
+        return mSize;
+    }
+
+    /**
+     * Get the position of the current element, which is where its id starts
+     * @return position in file
+     */
+    public long position() {
+        return mPosition;
+    }
+
+    /**
+     * Get the position of the data of the current element, after its id and size
+     * @return position in file
+     */
+    public long dataPosition() {
+        return mDataPosition;
+    }
+
+    /**
+     * Get the amount of elements entered
+     * @return depth, 0 is the level the cursor started at
+     */
+    public int depth() {
+        return mDepth;
+    }
+
+    /**
+     * Read the data of the current element as an unsigned integer of 0-8 bytes
+     * @return value
+     * @throws IOException
+     */
+    public long readUnsigned() throws IOException {
+        checkDataSize(8);
+        mSource.seek(mDataPosition);
+        long value = 0;
+        for (int i = 0; i < mSize; i++) {
+            value = (value << 8) | (mSource.readByte() & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * Read the data of the current element as a signed integer of 0-8 bytes
+     * @return value
+     * @throws IOException
+     */
+    public long readSigned() throws IOException {
+        long value = readUnsigned();
+        int shift = 64 - (int) mSize * 8;
+        return mSize == 0 ? 0 : (value << shift) >> shift;
+    }
+
+    /**
+     * Read the data of the current element as a float of 4 or 8 bytes
+     * @return value
+     * @throws IOException
+     */
+    public double readFloat() throws IOException {
+        mSource.seek(mDataPosition);
+        if (mSize == 4) {
+            return mSource.readFloat();
+        } else if (mSize == 8) {
+            return mSource.readDouble();
+        } else if (mSize == 0) {
+            return 0;
+        }
+        throw new EBMLParsingException("Cannot read float [id= 0x" + Integer.toHexString(mId)
+                + " @ 0x" + Long.toHexString(mPosition) + "] with len = " + mSize);
+    }
+
+    /**
+     * Read the data of the current element as a UTF-8 string
+     * @return value
+     * @throws IOException
+     */
+    public String readString() throws IOException {
+        checkDataSize(Integer.MAX_VALUE);
+        byte[] buffer = new byte[(int) mSize];
+        mSource.seek(mDataPosition);
+        mSource.readFully(buffer, 0, buffer.length);
+
+        // Strings can be padded with zeros
+        int length = buffer.length;
+        while (length > 0 && buffer[length - 1] == 0) {
+            length--;
+        }
+        return new String(buffer, 0, length, ElementBase.CHARSET);
+    }
+
+    /**
+     * Skip the data of the current element. This is what next() does by itself, it is only needed
+     * to leave the source after the current element.
+     * @throws IOException
+     */
+    public void skip() throws IOException {
+        if (mHasElement) {
+            mDataPosition = endOfElement();
+            mSize = 0;
+            mHasElement = false;
+            mSource.seek(mDataPosition);
+        }
+    }
+
+    /**
+     * Walk the children of the current element, next() will then return its first child
+     * @throws IOException
+     */
+    public void enter() throws IOException {
+        if (!mHasElement) {
+            throw new IllegalStateException("There is no element to enter");
+        }
+        if (mDepth + 1 == mEnds.length) {
+            long[] ends = new long[mEnds.length * 2];
+            System.arraycopy(mEnds, 0, ends, 0, mEnds.length);
+            mEnds = ends;
+            int[] ids = new int[mParentIds.length * 2];
+            System.arraycopy(mParentIds, 0, ids, 0, mParentIds.length);
+            mParentIds = ids;
+        }
+        mEnds[++mDepth] = mSize == ElementBase.UNKNOWN_LENGTH ? Long.MAX_VALUE
+                : mDataPosition + mSize;
+        mParentIds[mDepth] = mId;
+        mHasElement = false;
+    }
+
+    /**
+     * Stop walking the children of the entered element and skip what is left of it, next() will
+     * then return the element after it
+     * @throws IOException
+     */
+    public void exit() throws IOException {
+        if (mDepth == 0) {
+            throw new IllegalStateException("No element was entered");
+        }
+        if (mEnds[mDepth] == Long.MAX_VALUE) {
+            // Unknown size, the end can only be found by walking to it
+            while (next()) {
+            }
+        }
+        mDataPosition = mEnds[mDepth--];
+        mSize = 0;
+        mHasElement = false;
+        mSource.seek(mDataPosition);
+    }
+
+    private long endOfElement() throws IOException {
+        if (mSize == ElementBase.UNKNOWN_LENGTH) {
+            throw new EBMLParsingException("Cannot skip element with unknown size @ 0x"
+                    + Long.toHexString(mPosition) + ", enter and exit it instead");
+        }
+        return mDataPosition + mSize;
+    }
+
+    private void checkDataSize(int max) throws EBMLParsingException {
+        if (mSize < 0 || mSize > max) {
+            throw new EBMLParsingException("Cannot read [id= 0x" + Integer.toHexString(mId)
+                    + " @ 0x" + Long.toHexString(mPosition) + "] with len = " + mSize);
+        }
+    }
+}
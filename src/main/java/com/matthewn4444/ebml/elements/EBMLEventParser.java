@@ -0,0 +1,319 @@
+package com.matthewn4444.ebml.elements;
+
+import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
+import com.matthewn4444.ebml.node.MasterNode;
+import com.matthewn4444.ebml.node.NodeBase;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Event driven parser that walks a master element with the same schema as MasterElement but
+ * reports each element to a handler instead of building a tree. Use this for scans over whole
+ * files where each element is only looked at once.
+ *
+ * Usage:
+ *      EBMLEventParser parser = new EBMLEventParser(handler);
+ *      source.seek(clusterPosition);
+ *      while (parser.parse(source, Cluster.ENTRY)) {
+ *          // Each cluster was given to the handler
+ *      }
+ */
+public class EBMLEventParser {
+    /**
+     * Receives the elements as they are parsed. Values are only read for elements in the schema,
+     * void and unknown elements are skipped.
+     */
+    public interface Handler {
+        /**
+         * A master element starts
+         * @param id of the element
+         * @param position of the element in the file
+         * @param size of its data or UNKNOWN_LENGTH
+         * @return whether to parse its children, if false it is skipped and onMasterEnd is not
+         *         called. Elements with unknown size cannot be skipped.
+         * @throws IOException
+         */
+        boolean onMasterStart(int id, long position, long size) throws IOException;
+
+        /**
+         * All the children of the master element were parsed
+         * @param id of the element
+         * @throws IOException
+         */
+        void onMasterEnd(int id) throws IOException;
+
+        void onUnsigned(int id, long value) throws IOException;
+
+        /**
+         * An integer that the schema marks as signed, such as a reference block
+         * @param id of the element
+         * @param value with its sign
+         * @throws IOException
+         */
+        void onSigned(int id, long value) throws IOException;
+
+        void onFloat(int id, double value) throws IOException;
+
+        void onString(int id, String value) throws IOException;
+
+        /**
+         * Binary data, it is not read so use the source to read it if needed
+         * @param id of the element
+         * @param position of the data
+         * @param length of the data
+         * @throws IOException
+         */
+        void onBinary(int id, long position, long length) throws IOException;
+
+        /**
+         * A block or simple block, use currentBlock() while handling this to keep the block
+         * @param track number of the block
+         * @param timecode relative to the cluster
+         * @param flags of the block
+         * @param position of the frame data
+         * @param length of the frame data
+         * @throws IOException
+         */
+        void onBlock(int track, int timecode, int flags, long position, long length)
+                throws IOException;
+    }
+
+    /**
+     * Handler that ignores everything, extend this to only handle the events needed
+     */
+    public static class DefaultHandler implements Handler {
+        @Override
+        public boolean onMasterStart(int id, long position, long size) throws IOException {
+            return true;
+        }
+
+        @Override
+        public void onMasterEnd(int id) throws IOException {
+        }
+
+        @Override
+        public void onUnsigned(int id, long value) throws IOException {
+        }
+
+        @Override
+        public void onSigned(int id, long value) throws IOException {
+        }
+
+        @Override
+        public void onFloat(int id, double value) throws IOException {
+        }
+
+        @Override
+        public void onString(int id, String value) throws IOException {
+        }
+
+        @Override
+        public void onBinary(int id, long position, long length) throws IOException {
+        }
+
+        @Override
+        public void onBlock(int track, int timecode, int flags, long position, long length)
+                throws IOException {
+        }
+    }
+
+    private final Handler mHandler;
+    private EBMLSource mSource;
+
+    // Block being handled
+    private int mBlockId;
+    private long mBlockPosition;
+    private long mBlockSize;
+    private int mBlockTrack;
+    private int mBlockTimecode;
+    private int mBlockFlags;
+    private long mBlockDataPosition;
+    private int mBlockDataLength;
+    private BlockElement mBlock;
+
+    public EBMLEventParser(Handler handler) {
+        mHandler = handler;
+    }
+
+    /**
+     * Parse the element at the current position of the source and give it to the handler. The
+     * source is left after the element.
+     * @param source to read from
+     * @param node schema of the element expected at this position
+     * @return false if the element at this position is not the node given
+     * @throws IOException
+     */
+    public boolean parse(EBMLSource source, MasterNode node) throws IOException {
+        long position = source.position();
+        if (readIdOrEnd(source) != node.id()) {
+            source.seek(position);
+            return false;
+        }
+        mSource = source;
+        try {
+            long size = ElementBase.readLength(source);
+            if (mHandler.onMasterStart(node.id(), position, size)) {
+                readChildren(node, size);
+                mHandler.onMasterEnd(node.id());
+            } else {
+                skip(position, size);
+            }
+        } finally {
+            mSource = null;
+            mBlock = null;
+        }
+        return true;
+    }
+
+    /**
+     * Get the block that is being handled in onBlock() as an element that can be kept
+     * @return the block
+     * @throws IOException
+     */
+    public BlockElement currentBlock() throws IOException {
+        if (mSource == null || mBlockDataPosition == 0) {
+            throw new IllegalStateException("Only call this inside onBlock()");
+        }
+        if (mBlock == null) {
+            mBlock = new BlockElement(mBlockId, mSource, mBlockPosition, mBlockSize, mBlockTrack,
+                    mBlockTimecode, mBlockFlags, mBlockDataPosition, mBlockDataLength);
+        }
+        return mBlock;
+    }
+
+    private void readChildren(MasterNode node, long length) throws IOException {
+        boolean unknownLength = length == ElementBase.UNKNOWN_LENGTH;
+        long end = unknownLength ? Long.MAX_VALUE : mSource.position() + length;
+        while (mSource.position() < end) {
+            long position = mSource.position();
+            int id;
+            if (unknownLength) {
+                // Unknown sized elements end at the end of the data or an element that cannot be
+                // inside of it, leave the source at that element
+                try {
+                    id = ElementBase.readId(mSource);
+                } catch (EOFException e) {
+                    mSource.seek(position);
+                    return;
+                }
+                if (ElementBase.endsUnknownSize(node.id(), id)) {
+                    mSource.seek(position);
+                    return;
+                }
+            } else {
+                id = ElementBase.readId(mSource);
+            }
+
+            NodeBase child = node.getNode(id);
+            if (child == null) {
+                // Void or not in the schema
+                ElementBase.skipData(mSource);
+                continue;
+            }
+            long size = ElementBase.readLength(mSource);
+            if (child.getType() == NodeBase.Type.MASTER) {
+                if (mHandler.onMasterStart(id, position, size)) {
+                    readChildren((MasterNode) child, size);
+                    mHandler.onMasterEnd(id);
+                } else {
+                    skip(position, size);
+                }
+                continue;
+            }
+            if (size == ElementBase.UNKNOWN_LENGTH) {
+                throw new EBMLParsingException("Only master elements can have an unknown size. "
+                        + "[Id: 0x" + Integer.toHexString(id) + " @ 0x"
+                        + Long.toHexString(position) + "]");
+            }
+
+            long dataPosition = mSource.position();
+            switch (child.getType()) {
+                case INT:
+                case LONG:
+                    if (ElementBase.isSigned(child)) {
+                        long value = readUnsigned(size);
+                        int shift = 64 - (int) size * 8;
+                        mHandler.onSigned(id, size == 0 ? 0 : (value << shift) >> shift);
+                    } else {
+                        mHandler.onUnsigned(id, readUnsigned(size));
+                    }
+                    break;
+                case FLOAT:
+                    if (size == 4) {
+                        mHandler.onFloat(id, mSource.readFloat());
+                    } else if (size == 8) {
+                        mHandler.onFloat(id, mSource.readDouble());
+                    } else {
+                        throw new EBMLParsingException("Cannot determine type of float or "
+                                + "double for this element");
+                    }
+                    break;
+                case STRING:
+                    byte[] buffer = new byte[(int) size];
+                    mSource.readFully(buffer, 0, buffer.length);
+                    mHandler.onString(id, new String(buffer, ElementBase.CHARSET));
+                    break;
+                case BYTES:
+                    mHandler.onBinary(id, dataPosition, size);
+                    break;
+                case BLOCK:
+                    readBlock(id, position, size);
+                    break;
+                default:
+                    throw new EBMLParsingException("Cannot parse unset node");
+            }
+            mSource.seek(dataPosition + size);
+        }
+    }
+
+    private void readBlock(int id, long position, long size) throws IOException {
+        // Read documentation to understand what this does
+        // http://www.matroska.org/technical/specs/index.html#block_structure
+        long start = mSource.position();
+        mBlockId = id;
+        mBlockPosition = position;
+        mBlockSize = size;
+        mBlockTrack = (int) ElementBase.readLength(mSource);
+        mBlockTimecode = mSource.readShort();
+        mBlockFlags = mSource.readByte() & 0xFF;
+        mBlockDataPosition = mSource.position();
+        mBlockDataLength = (int) (size - (mBlockDataPosition - start));
+        mBlock = null;
+        try {
+            mHandler.onBlock(mBlockTrack, mBlockTimecode, mBlockFlags, mBlockDataPosition,
+                    mBlockDataLength);
+        } finally {
+            mBlockDataPosition = 0;
+            mBlock = null;
+        }
+    }
+
+    private long readUnsigned(long size) throws IOException {
+        if (size > 8) {
+            throw new EBMLParsingException("Cannot read integer with len = " + size);
+        }
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            value = (value << 8) | (mSource.readByte() & 0xFF);
+        }
+        return value;
+    }
+
+    private void skip(long position, long size) throws IOException {
+        if (size == ElementBase.UNKNOWN_LENGTH) {
+            throw new EBMLParsingException("Cannot skip element with unknown size @ 0x"
+                    + Long.toHexString(position));
+        }
+        mSource.skip(size);
+    }
+
+    private static int readIdOrEnd(EBMLSource source) throws IOException {
+        try {
+            return ElementBase.readId(source);
+        } catch (EOFException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.matthewn4444.ebml.elements;
+
+import com.matthewn4444.ebml.node.NodeBase;
+
+import java.util.ArrayList;
+
+/**
+ * A path of ids from a master element down to the elements wanted. Compile it once and reuse it,
+ * each level is looked up with the child index of the master elements instead of searching the
+ * whole tree.
+ *
+ * Usage:
+ *      static final EBMLPath COMPRESSION = EBMLPath.compile(Tracks.CONTENT_ENCODINGS_ENTRY,
+ *              Tracks.CONTENT_ENCODING, Tracks.CONTENT_COMPRESSION);
+ *
+ *      ElementBase el = COMPRESSION.find(trackEntry);
+ */
+public final class EBMLPath {
+    private final int[] mIds;
+
+    /**
+     * Create a path
+     * @param ids of each level, starting with a child of the master element the path is used on
+     * @return the path
+     */
+    public static EBMLPath compile(int... ids) {
+        if (ids.length == 0) {
+            throw new IllegalArgumentException("Path needs at least one id");
+        }
+        return new EBMLPath(ids.clone());
+    }
+
+    private EBMLPath(int[] ids) {
+        mIds = ids;
+    }
+
+    /**
+     * Get the amount of levels in the path
+     * @return length of the path
+     */
+    public int length() {
+        return mIds.length;
+    }
+
+    public int getId(int level) {
+        return mIds[level];
+    }
+
+    /**
+     * Find the first element at the end of the path, taking the first child with each id
+     * @param master to start from
+     * @return the element or null if it is not there
+     */
+    public ElementBase find(MasterElement master) {
+        ElementBase el = master;
+        for (int i = 0; i < mIds.length; i++) {
+            if (el.mType != NodeBase.Type.MASTER) {
+                return null;
+            }
+            el = ((MasterElement) el).getElement(mIds[i]);
+            if (el == null) {
+                return null;
+            }
+        }
+        return el;
+    }
+
+    /**
+     * Find all the elements at the end of the path, following every child with each id such as
+     * each entry of a seek head
+     * @param master to start from
+     * @return the elements in the order they are in the file, empty if there are none
+     */
+    public ArrayList<ElementBase> findAll(MasterElement master) {
+        ArrayList<ElementBase> level = new ArrayList<ElementBase>();
+        level.add(master);
+        for (int i = 0; i < mIds.length && !level.isEmpty(); i++) {
+            ArrayList<ElementBase> next = new ArrayList<ElementBase>();
+            for (int j = 0; j < level.size(); j++) {
+                ElementBase el = level.get(j);
+                if (el.mType == NodeBase.Type.MASTER) {
+                    next.addAll(((MasterElement) el).getElements(mIds[i]));
+                }
+            }
+            level = next;
+        }
+        return level;
+    }
+}
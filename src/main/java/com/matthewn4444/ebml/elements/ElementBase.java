@@ -1,14 +1,38 @@
 package com.matthewn4444.ebml.elements;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
+import com.matthewn4444.ebml.Attachments;
+import com.matthewn4444.ebml.Chapters;
+import com.matthewn4444.ebml.Cluster;
+import com.matthewn4444.ebml.Cues;
 import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.EBMLReader;
+import com.matthewn4444.ebml.Info;
+import com.matthewn4444.ebml.Segment;
+import com.matthewn4444.ebml.Tags;
+import com.matthewn4444.ebml.Tracks;
+import com.matthewn4444.ebml.io.EBMLSource;
+import com.matthewn4444.ebml.node.IntNode;
+import com.matthewn4444.ebml.node.LongNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 public abstract class ElementBase {
     protected static final String TAG = "EBMLParsing";
 
+    /**
+     * Length of an element whose size was not written, the element ends when an id that cannot be
+     * inside of it is found
+     */
+    public static final long UNKNOWN_LENGTH = -1;
+
+    // Encoding of string elements
+    public static final String CHARSET = "UTF-8";
+
+    // EBML header, segment and the top level elements of the segment
+    private static final int[] TOP_LEVEL_IDS = { EBMLReader.ID, Segment.ID, Segment.SEEK_HEAD,
+            Info.ID, Tracks.ID, Cluster.ID, Cues.ID, Attachments.ID, Chapters.ID, Tags.ID };
+
     protected final NodeBase.Type mType;
     protected final int mId;
     protected final long mPosition;
@@ -19,23 +43,72 @@ public abstract class ElementBase {
     /**
      * Reads the id of EBML format of 1-4 bytes
      * Read readBytes below to understand how we get this id
-     * @param raf file stream
+     * @param source to read from
      * @return the number id
      * @throws IOException
      */
-    public static int readId(RandomAccessFile raf) throws IOException {
-        return readBytes(raf, false);
+    public static int readId(EBMLSource source) throws IOException {
+        return (int) readBytes(source, false);
     }
 
     /**
      * Reads the length of the next section
      * * Read readBytes below to understand how we get this length
-     * @param raf file stream
-     * @return the length of following data
+     * @param source to read from
+     * @return the length of following data or UNKNOWN_LENGTH if the size was not written
      * @throws IOException
      */
-    static int readLength(RandomAccessFile raf) throws IOException {
-        return readBytes(raf, true);
+    public static long readLength(EBMLSource source) throws IOException {
+        return readBytes(source, true);
+    }
+
+    /**
+     * Checks if an integer node holds a signed value
+     * @param node of an INT or LONG element
+     * @return if it is signed
+     */
+    static boolean isSigned(NodeBase node) {
+        if (node instanceof IntNode) {
+            return ((IntNode) node).isSigned();
+        }
+        return node instanceof LongNode && ((LongNode) node).isSigned();
+    }
+
+    /**
+     * Checks if an id ends a parent element that has an unknown size. The EBML header, the segment
+     * and the top level elements of the segment can never be inside of another element, so they
+     * mark the end of it. The children of the segment are top level elements, so only another
+     * EBML header or segment ends it.
+     * All parsers use this so they agree on where an element with unknown size ends.
+     * @param parentId id of the element with unknown size
+     * @param id of the element that was read
+     * @return if the id cannot be inside of the parent
+     */
+    static boolean endsUnknownSize(int parentId, int id) {
+        if (parentId == Segment.ID) {
+            return id == EBMLReader.ID || id == Segment.ID;
+        }
+        for (int topLevelId : TOP_LEVEL_IDS) {
+            if (topLevelId == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the length of the next section and skips over its data
+     * @param source to read from
+     * @throws IOException if the length is unknown since the end can only be found by parsing
+     */
+    public static void skipData(EBMLSource source) throws IOException {
+        long pos = source.position();
+        long length = readLength(source);
+        if (length == UNKNOWN_LENGTH) {
+            throw new EBMLParsingException("Cannot skip element with unknown size @ 0x"
+                    + Long.toHexString(pos));
+        }
+        source.skip(length);
     }
 
     /**
@@ -47,41 +120,41 @@ public abstract class ElementBase {
      *          if you '&' with 0x80, read 1 byte
      *          if you '&' with 0x40, read 2 bytes
      *          if you '&' with 0x20, read 3 bytes
-     *          if you '&' with 0x10, read 4 bytes
+     *          ...
+     *          if you '&' with 0x01, read 8 bytes
      *      Following this read the next however many bytes from above and or them as digits (so
      *      shift them).
      *      Reading as length requires you to take the next bit and subtract the first byte
-     * @param raf file stream
+     *      A length with all its bits set means the size is unknown, live streams write this for
+     *      segments and clusters since the size is not known till the recording has finished
+     * Ids are at most 4 bytes, lengths can use all 8.
+     * This holds no lock of its own, callers that share a file stream across threads must
+     * synchronize on that stream (as EBMLReader does) so each reader only contends with itself.
+     * @param source to read from
      * @param readAsLength whether to read this as length, if false it reads as id
      * @return a value, id or length
      * @throws IOException
      */
-    protected synchronized static int readBytes(RandomAccessFile raf, boolean readAsLength) throws IOException {
-        long pos = raf.getFilePointer();
-        int b1 = raf.readByte() & 0xFF;
-
-        if ((b1 & 0x80) != 0) {
-            return b1 - (readAsLength ? 0x80 : 0);
-        }
-        else if ((b1 & 0x40) != 0) {
-            return ((b1 - (readAsLength ? 0x40 : 0)) << 8) | (raf.readByte() & 0xFF);
+    protected static long readBytes(EBMLSource source, boolean readAsLength) throws IOException {
+        long pos = source.position();
+        int b1 = source.readByte() & 0xFF;
+
+        // Leading zeros in the first byte tell how many bytes follow
+        int width = Integer.numberOfLeadingZeros(b1) - 23;
+        if (b1 == 0 || (!readAsLength && width > 4)) {
+            throw new EBMLParsingException("Unable to get " + (readAsLength ? "length" : "id")
+                    + " from stream. [Byte: 0x" + Integer.toHexString(b1) + " @ 0x"
+                    + Long.toHexString(pos) + "]");
         }
-        else if ((b1 & 0x20) != 0) {
-            return ((b1 - (readAsLength ? 0x20 : 0)) << 16) | ((raf.readByte() & 0xFF) << 8) | (raf.readByte() & 0xFF);
-        }
-        else if ((b1 & 0x10) != 0) {
-            return (b1 - (readAsLength ? 0x10 : 0)) << 24 | ((raf.readByte() & 0xFF) << 16) | ((raf.readByte() & 0xFF) << 8) | (raf.readByte() & 0xFF);
-        }
-        else if (b1 == 0x01) {
-            // TODO if this errors because long -> int shortens the number, fix to return long
-            raf.seek(pos);
-            long length = raf.readLong();
-            return (int) (readAsLength ? length & 0x00ffffffffffffffL : length);
-        } else {
-            throw new EBMLParsingException("Unable to get length from stream. [Byte: 0x"
-                    + Integer.toHexString(b1) + " @ 0x" + Long.toHexString(pos)
-                    + "]");
+        int mask = 0xFF >> width;
+        long value = readAsLength ? b1 & mask : b1;
+        boolean allOnes = (b1 & mask) == mask;
+        for (int i = 1; i < width; i++) {
+            int b = source.readByte() & 0xFF;
+            allOnes &= b == 0xFF;
+            value = (value << 8) | b;
         }
+        return readAsLength && allOnes ? UNKNOWN_LENGTH : value;
     }
 
     ElementBase(NodeBase.Type type, int id, long position) {
@@ -92,13 +165,17 @@ public abstract class ElementBase {
 
     /**
      * Reads the file stream and handles the data depending on the type of inherited class
-     * @param raf file stream
+     * @param source to read from
      * @return if successful
      * @throws IOException
      */
-    boolean read(RandomAccessFile raf) throws IOException {
-        mInnerLength = readLength(raf);
-        mLength = raf.getFilePointer() - mPosition + mInnerLength;
+    boolean read(EBMLSource source) throws IOException {
+        mInnerLength = readLength(source);
+        if (mInnerLength == UNKNOWN_LENGTH) {
+            throw new EBMLParsingException("Only master elements can have an unknown size. [Id: "
+                    + hexId() + " @ 0x" + Long.toHexString(mPosition) + "]");
+        }
+        mLength = source.position() - mPosition + mInnerLength;
         return true;
     }
 
@@ -146,6 +223,14 @@ public abstract class ElementBase {
         return mLength;
     }
 
+    /**
+     * Get the size of the data of the element, which does not include its id and size
+     * @return size of the data
+     */
+    public long getDataSize() {
+        return mInnerLength;
+    }
+
     /**
      * Convenience function to get the id as a hex string
      * @return hex string of id
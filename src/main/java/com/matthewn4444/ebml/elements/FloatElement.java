@@ -4,11 +4,11 @@ package com.matthewn4444.ebml.elements;
 import android.util.Log;
 
 import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.FloatNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 public class FloatElement extends ElementBase {
     private float mData;
@@ -27,14 +27,14 @@ public class FloatElement extends ElementBase {
     }
 
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
         if (mInnerLength == 4) {
-            mData = raf.readFloat();
+            mData = source.readFloat();
         } else {
             throw new EBMLParsingException("get float [id= " + hexId() + " @ 0x" +
-                    Long.toHexString(raf.getFilePointer()) + "] with len = " + mInnerLength
+                    Long.toHexString(source.position()) + "] with len = " + mInnerLength
                     + " is not supported");
         }
         return true;
@@ -4,18 +4,20 @@ package com.matthewn4444.ebml.elements;
 import android.util.Log;
 
 import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.IntNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 public class IntElement extends ElementBase {
     private int mData;
+    private final boolean mSigned;
 
     IntElement(IntNode node, long position) {
         super(NodeBase.Type.INT, node.id(), position);
         mData = node.getDefault();
+        mSigned = node.isSigned();
     }
 
     /**
@@ -27,25 +29,32 @@ public class IntElement extends ElementBase {
     }
 
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
         switch ((int)mInnerLength) {
+        case 0:
+            // Empty elements have the default value
+            break;
         case 1:
-            mData = raf.readByte() & 0xFF;
+            mData = source.readByte() & 0xFF;
             break;
         case 2:
-            mData = raf.readShort() & 0xFFFF;
+            mData = source.readShort() & 0xFFFF;
             break;
         case 3:
-            mData = ((raf.readByte() & 0xFF) << 16) | (raf.readShort() & 0xFFFF);
+            mData = ((source.readByte() & 0xFF) << 16) | (source.readShort() & 0xFFFF);
             break;
         case 4:
-            mData = raf.readInt();
+            mData = source.readInt();
             break;
         default:
             throw new EBMLParsingException("get int [id= " + hexId() + " @ 0x" +
-                    Long.toHexString(raf.getFilePointer()) + "] with len = " + mInnerLength + " is not supported");
+                    Long.toHexString(source.position()) + "] with len = " + mInnerLength + " is not supported");
+        }
+        if (mSigned && mInnerLength > 0 && mInnerLength < 4) {
+            int shift = 32 - (int) mInnerLength * 8;
+            mData = (mData << shift) >> shift;
         }
         return true;
     }
@@ -4,18 +4,20 @@ package com.matthewn4444.ebml.elements;
 import android.util.Log;
 
 import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.LongNode;
 import com.matthewn4444.ebml.node.NodeBase;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 
 public class LongElement extends ElementBase {
     private long mData;
+    private final boolean mSigned;
 
     LongElement(LongNode node, long position) {
         super(NodeBase.Type.LONG, node.id(), position);
         mData = node.getDefault();
+        mSigned = node.isSigned();
     }
 
     /**
@@ -27,39 +29,46 @@ public class LongElement extends ElementBase {
     }
 
     @Override
-    public boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    public boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
         switch ((int) mInnerLength) {
+        case 0:
+            // Empty elements have the default value
+            break;
         case 1:
-            mData = raf.readByte() & 0xFF;
+            mData = source.readByte() & 0xFF;
             break;
         case 2:
-            mData = raf.readShort() & 0xFFFF;
+            mData = source.readShort() & 0xFFFF;
             break;
         case 3:
-            mData = ((raf.readByte() & 0xFF) << 16) | (raf.readShort() & 0xFFFF);
+            mData = ((source.readByte() & 0xFF) << 16) | (source.readShort() & 0xFFFF);
             break;
         case 4:
-            mData = raf.readInt() & 0x00000000ffffffffL;        // Convert the signed int to unsigned long
+            mData = source.readInt() & 0x00000000ffffffffL;        // Convert the signed int to unsigned long
             break;
         case 5:
-            mData = ((long)(raf.readByte() & 0xFF) << 32) | (raf.readInt() & 0x00000000ffffffffL);
+            mData = ((long)(source.readByte() & 0xFF) << 32) | (source.readInt() & 0x00000000ffffffffL);
             break;
         case 6:
-            raf.seek(raf.getFilePointer() - 2);
-            mData = raf.readLong() & 0x0000ffffffffffffL;
+            source.seek(source.position() - 2);
+            mData = source.readLong() & 0x0000ffffffffffffL;
             break;
         case 7:
-            raf.seek(raf.getFilePointer() - 1);
-            mData = raf.readLong() & 0x00ffffffffffffffL;
+            source.seek(source.position() - 1);
+            mData = source.readLong() & 0x00ffffffffffffffL;
             break;
         case 8:
-            mData = raf.readLong();
+            mData = source.readLong();
             break;
         default:
             throw new EBMLParsingException("get long [id= " + hexId() + " @ 0x" +
-                    Long.toHexString(raf.getFilePointer()) + "] with len = " + mInnerLength + " is not supported");
+                    Long.toHexString(source.position()) + "] with len = " + mInnerLength + " is not supported");
+        }
+        if (mSigned && mInnerLength > 0 && mInnerLength < 8) {
+            int shift = 64 - (int) mInnerLength * 8;
+            mData = (mData << shift) >> shift;
         }
         return true;
     }
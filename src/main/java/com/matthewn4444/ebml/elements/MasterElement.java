@@ -2,7 +2,9 @@ package com.matthewn4444.ebml.elements;
 
 import android.util.Log;
 
+import com.matthewn4444.ebml.EBMLException;
 import com.matthewn4444.ebml.EBMLParsingException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.BlockNode;
 import com.matthewn4444.ebml.node.ByteNode;
 import com.matthewn4444.ebml.node.FloatNode;
@@ -12,8 +14,8 @@ import com.matthewn4444.ebml.node.MasterNode;
 import com.matthewn4444.ebml.node.NodeBase;
 import com.matthewn4444.ebml.node.StringNode;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Set;
@@ -29,15 +31,29 @@ public class MasterElement extends ElementBase {
     private final ArrayList<ElementBase> mElements;
     private final MasterNode mSchema;
 
+    // Lazy parsing: the position of each child that has not been read into mElements yet
+    private volatile EBMLSource mLazySource;
+    private int[] mLazyIds;
+    private long[] mLazyPositions;
+    private ElementBase[] mLazyElements;
+    private int mLazyCount;
+
+    // Index of the children by id, only built for masters with many children
+    private static final int INDEX_MIN_CHILDREN = 8;
+    private volatile ChildIndex mIndex;
+
     protected static ElementBase getElementFromPath(MasterElement master, int index, int... ids) {
-        if (index >= ids.length) {
-            return master;
-        }
-        ElementBase el = master.getElement(ids[index]);
-        if (el != null) {
-            return getElementFromPath((MasterElement) el, index + 1, ids);
+        ElementBase el = master;
+        for (int i = index; i < ids.length; i++) {
+            if (el.mType != NodeBase.Type.MASTER) {
+                return null;
+            }
+            el = ((MasterElement) el).getElement(ids[i]);
+            if (el == null) {
+                return null;
+            }
         }
-        return null;
+        return el;
     }
 
     /**
@@ -47,12 +63,12 @@ public class MasterElement extends ElementBase {
      * element inside.
      * This is the static version of parseOnlyIdAndLength
      *
-     * @return the length of this master element
+     * @return the length of this master element, it can be UNKNOWN_LENGTH
      */
-    public static int parseUpToLength(RandomAccessFile raf, int id) throws IOException {
-        int elementId = readId(raf);
+    public static long parseUpToLength(EBMLSource source, int id) throws IOException {
+        int elementId = readId(source);
         if (elementId == id) {
-            return readLength(raf);
+            return readLength(source);
         }
         return 0;
     }
@@ -63,13 +79,13 @@ public class MasterElement extends ElementBase {
         mElements = new ArrayList<ElementBase>();
     }
 
-    public ElementBase parseElementIdOnce(RandomAccessFile raf, int searchId)
+    public ElementBase parseElementIdOnce(EBMLSource source, int searchId)
             throws IOException {
         mSearchOnceId = searchId;
-        int elementId = readId(raf);
+        int elementId = readId(source);
         if (elementId == mId) {
-            int len = readLength(raf);
-            if (readSection(raf, len, null, null)) {
+            long len = readLength(source);
+            if (readSection(source, len, null, 0)) {
                 return mSearchOnceFoundElement;
             }
         }
@@ -83,41 +99,173 @@ public class MasterElement extends ElementBase {
      *
      * @return the length of this master element
      */
-    public int parseOnlyIdAndLength(RandomAccessFile raf) throws IOException {
+    public long parseOnlyIdAndLength(EBMLSource source) throws IOException {
         mSearchOnceId = 0;
-        return parseUpToLength(raf, mId);
+        return parseUpToLength(source, mId);
     }
 
-    public boolean parse(RandomAccessFile raf) throws IOException {
-        return parse(raf, null, null);
+    public boolean parse(EBMLSource source) throws IOException {
+        return parse(source, null, null);
     }
 
-    public boolean parse(RandomAccessFile raf, Set<Integer> filterTrackNumbers,
+    public boolean parse(EBMLSource source, Set<Integer> filterTrackNumbers,
             Set<Integer> filterIds) throws IOException {
-        long pos = raf.getFilePointer();
-        int elementId = readId(raf);
+        return parse(source, ParseProjection.fromFilters(filterTrackNumbers, filterIds));
+    }
+
+    /**
+     * Parse this element and only the children that the projection includes
+     * @param source to read from
+     * @param projection of the elements to read or null to read all
+     * @return false if the element at this position is not this element
+     * @throws IOException
+     */
+    public boolean parse(EBMLSource source, ParseProjection projection) throws IOException {
+        long pos = source.position();
+        int elementId = readId(source);
+        if (elementId == mId) {
+            mInnerLength = readLength(source);
+            mLength = source.position() - pos + mInnerLength;
+            return readSection(source, mInnerLength, projection, 0);
+        }
+        return false;
+    }
+
+    /**
+     * Parses only the ids and positions of the children, each child is read from the source the
+     * first time it is accessed. Use this when only a few values are needed from a large element.
+     * Children that are masters are read lazily as well. Sources that cannot seek are parsed
+     * normally.
+     * The source is locked while children are read, just like callers of parse() should do.
+     * @param source to read from, it must stay open while this element is used
+     * @return if the element at this position has the id of this element
+     * @throws IOException
+     */
+    public boolean parseLazily(EBMLSource source) throws IOException {
+        long pos = source.position();
+        int elementId = readId(source);
         if (elementId == mId) {
-            mInnerLength = readLength(raf);
-            mLength = raf.getFilePointer() - pos + mInnerLength;
-            return readSection(raf, mInnerLength, filterTrackNumbers, filterIds);
+            mInnerLength = readLength(source);
+            mLength = source.position() - pos + mInnerLength;
+            return readLazily(source);
         }
         return false;
     }
 
+    private boolean readLazily(EBMLSource source) throws IOException {
+        if (mInnerLength == UNKNOWN_LENGTH || !source.isSeekable()) {
+            return readSection(source, mInnerLength, null, 0);
+        }
+
+        // Only record where each child is so it can be read later
+        int[] ids = new int[8];
+        long[] positions = new long[8];
+        int count = 0;
+        long upToLimit = source.position() + mInnerLength;
+        while (source.position() < upToLimit) {
+            long position = source.position();
+            int id = readId(source);
+
+            // Void and elements not in the schema are skipped
+            if (mSchema.hasNode(id)) {
+                if (count == ids.length) {
+                    int[] newIds = new int[count * 2];
+                    long[] newPositions = new long[count * 2];
+                    System.arraycopy(ids, 0, newIds, 0, count);
+                    System.arraycopy(positions, 0, newPositions, 0, count);
+                    ids = newIds;
+                    positions = newPositions;
+                }
+                ids[count] = id;
+                positions[count] = position;
+                count++;
+            }
+            skipData(source);
+        }
+        mLazyIds = ids;
+        mLazyPositions = positions;
+        mLazyElements = new ElementBase[count];
+        mLazyCount = count;
+        mLazySource = source;
+        return true;
+    }
+
+    /**
+     * Reads a child that was only recorded by parseLazily()
+     * @param index of the child
+     * @return the element
+     */
+    private ElementBase readLazyElement(int index) throws IOException {
+        ElementBase element = mLazyElements[index];
+        if (element == null) {
+            EBMLSource source = mLazySource;
+            long current = source.position();
+            long position = mLazyPositions[index];
+            try {
+                source.seek(position);
+                readId(source);
+                NodeBase node = mSchema.getNode(mLazyIds[index]);
+                if (node.getType() == NodeBase.Type.MASTER) {
+                    MasterElement master = new MasterElement((MasterNode) node, position);
+                    master.mInnerLength = readLength(source);
+                    master.mLength = source.position() - position + master.mInnerLength;
+                    master.readLazily(source);
+                    element = master;
+                } else {
+                    element = newValueElement(node, source, position);
+                    element.read(source);
+                }
+                mLazyElements[index] = element;
+            } finally {
+                // Whoever is parsing this source continues from where it was
+                source.seek(current);
+            }
+        }
+        return element;
+    }
+
+    /**
+     * Reads all the children that were not read yet, afterwards this is no longer lazy
+     */
+    private void readAllLazyElements() {
+        EBMLSource source = mLazySource;
+        if (source == null) {
+            return;
+        }
+        synchronized (source) {
+            if (mLazySource == null) {
+                return;
+            }
+            try {
+                for (int i = 0; i < mLazyCount; i++) {
+                    mElements.add(readLazyElement(i));
+                }
+            } catch (IOException e) {
+                mElements.clear();
+                throw new EBMLException("Unable to read element [" + hexId() + "] lazily", e);
+            }
+            mLazyIds = null;
+            mLazyPositions = null;
+            mLazyElements = null;
+            mLazySource = null;
+        }
+    }
+
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
-        return readSection(raf, mInnerLength, null, null);
+    boolean read(EBMLSource source) throws IOException {
+        return read(source, null, 0);
     }
 
-    boolean read(RandomAccessFile raf, Set<Integer> filterTrackNumbers,
-            Set<Integer> filterIds) throws IOException {
-        super.read(raf);
-        return readSection(raf, mInnerLength, filterTrackNumbers, filterIds);
+    boolean read(EBMLSource source, ParseProjection projection, int depth) throws IOException {
+        // Master elements can have an unknown size, so the length is read here instead of super
+        mInnerLength = readLength(source);
+        mLength = source.position() - mPosition + mInnerLength;
+        return readSection(source, mInnerLength, projection, depth);
     }
 
     public MasterElement searchForMasterWithIntValue(int elementId,
             int findValue) throws IOException {
+        readAllLazyElements();
         // Find the positions of tracks
         for (int i = 0; i < mElements.size(); i++) {
             switch (mElements.get(i).mType) {
@@ -148,6 +296,7 @@ public class MasterElement extends ElementBase {
     }
 
     public int searchForIntValue(int id, int defaultValue) {
+        readAllLazyElements();
         for (int i = 0; i < mElements.size(); i++) {
             switch (mElements.get(i).mType) {
             case INT:
@@ -176,7 +325,8 @@ public class MasterElement extends ElementBase {
     }
 
     public int getValueInt(int id) {
-        return getValueInt(id, 0);
+        NodeBase node = mSchema.getNode(id);
+        return getValueInt(id, node instanceof IntNode ? ((IntNode) node).getDefault() : 0);
     }
 
     public int getValueInt(int id, int defaultValue) {
@@ -188,6 +338,7 @@ public class MasterElement extends ElementBase {
     }
 
     public long searchForLongValue(int id, long defaultValue) {
+        readAllLazyElements();
         for (int i = 0; i < mElements.size(); i++) {
             switch (mElements.get(i).mType) {
             case LONG:
@@ -215,7 +366,8 @@ public class MasterElement extends ElementBase {
     }
 
     public long getValueLong(int id) {
-        return getValueLong(id, 0);
+        NodeBase node = mSchema.getNode(id);
+        return getValueLong(id, node instanceof LongNode ? ((LongNode) node).getDefault() : 0);
     }
 
     public long getValueLong(int id, long defaultValue) {
@@ -227,6 +379,7 @@ public class MasterElement extends ElementBase {
     }
 
     public float searchForFloatValue(int id, float defaultValue) {
+        readAllLazyElements();
         for (int i = 0; i < mElements.size(); i++) {
             switch (mElements.get(i).mType) {
             case FLOAT:
@@ -255,6 +408,7 @@ public class MasterElement extends ElementBase {
     }
 
     public double searchForDoubleValue(int id, double defaultValue) {
+        readAllLazyElements();
         for (int i = 0; i < mElements.size(); i++) {
             if (mElements.get(i).mType == NodeBase.Type.DOUBLE) {
                 if (mElements.get(i).id() == id) {
@@ -264,10 +418,11 @@ public class MasterElement extends ElementBase {
                 if (mElements.get(i).id() == id) {
                     return ((FloatElement) mElements.get(i)).getData();
                 }
-            } else {
-                float value = searchForFloatValue(id, 0);
-                if (value != 0) {
-                    return value;
+            } else if (mElements.get(i).mType == NodeBase.Type.MASTER) {
+                double r = ((MasterElement) mElements.get(i)).searchForDoubleValue(
+                        id, defaultValue);
+                if (r != defaultValue) {
+                    return r;
                 }
             }
         }
@@ -275,7 +430,8 @@ public class MasterElement extends ElementBase {
     }
 
     public float getFloatLong(int id) {
-        return getFloatLong(id, 0);
+        NodeBase node = mSchema.getNode(id);
+        return getFloatLong(id, node instanceof FloatNode ? ((FloatNode) node).getDefault() : 0);
     }
 
     public float getFloatLong(int id, float defaultValue) {
@@ -287,7 +443,8 @@ public class MasterElement extends ElementBase {
     }
 
     public double getDoubleLong(int id) {
-        return getDoubleLong(id, 0);
+        NodeBase node = mSchema.getNode(id);
+        return getDoubleLong(id, node instanceof FloatNode ? ((FloatNode) node).getDefault() : 0);
     }
 
     public double getDoubleLong(int id, double defaultValue) {
@@ -307,7 +464,8 @@ public class MasterElement extends ElementBase {
         if (el != null && el.mType == NodeBase.Type.STRING) {
             return ((StringElement) el).getString();
         }
-        return null;
+        NodeBase node = mSchema.getNode(id);
+        return node instanceof StringNode ? ((StringNode) node).getDefault() : null;
     }
 
     public ByteElement getByteElement(int id) {
@@ -327,12 +485,71 @@ public class MasterElement extends ElementBase {
     }
 
     public ElementBase getElement(int id) {
-        for (int i = 0; i < mElements.size(); i++) {
-            if (mElements.get(i).mId == id) {
-                return mElements.get(i);
+        EBMLSource lazySource = mLazySource;
+        if (lazySource != null) {
+            synchronized (lazySource) {
+                if (mLazySource != null) {
+                    // Only read the child that is asked for
+                    for (int i = 0; i < mLazyCount; i++) {
+                        if (mLazyIds[i] == id) {
+                            try {
+                                return readLazyElement(i);
+                            } catch (IOException e) {
+                                throw new EBMLException("Unable to read element [0x"
+                                        + Integer.toHexString(id) + "] lazily", e);
+                            }
+                        }
+                    }
+                    return null;
+                }
             }
         }
-        return null;
+        if (mElements.size() < INDEX_MIN_CHILDREN) {
+            for (int i = 0; i < mElements.size(); i++) {
+                if (mElements.get(i).mId == id) {
+                    return mElements.get(i);
+                }
+            }
+            return null;
+        }
+        int index = getIndex().first(id);
+        return index >= 0 ? mElements.get(index) : null;
+    }
+
+    /**
+     * Get all the children with this id in the order they are in the file, use this for elements
+     * that can repeat such as CueTrackPositions
+     * @param id of the children
+     * @return list of the children, empty if there are none
+     */
+    public ArrayList<ElementBase> getElements(int id) {
+        readAllLazyElements();
+        ArrayList<ElementBase> list = new ArrayList<ElementBase>();
+        if (mElements.size() < INDEX_MIN_CHILDREN) {
+            for (int i = 0; i < mElements.size(); i++) {
+                if (mElements.get(i).mId == id) {
+                    list.add(mElements.get(i));
+                }
+            }
+            return list;
+        }
+        ChildIndex childIndex = getIndex();
+        for (int i = childIndex.first(id); i >= 0; i = childIndex.next(i)) {
+            list.add(mElements.get(i));
+        }
+        return list;
+    }
+
+    /**
+     * Get the index of the children, it is rebuilt if children were added since it was built
+     */
+    private ChildIndex getIndex() {
+        ChildIndex index = mIndex;
+        if (index == null || index.size() != mElements.size()) {
+            index = new ChildIndex(mElements);
+            mIndex = index;
+        }
+        return index;
     }
 
     /**
@@ -346,52 +563,88 @@ public class MasterElement extends ElementBase {
     }
 
     public ArrayList<ElementBase> getElements() {
+        readAllLazyElements();
         return mElements;
     }
 
-    protected boolean readSection(RandomAccessFile raf, long len,
-            Set<Integer> filterTrackNumbers, Set<Integer> filterIds)
+    /**
+     * Creates the element for a node that is not a master, the source must be right after its id
+     */
+    private static ElementBase newValueElement(NodeBase node, EBMLSource source, long position)
             throws IOException {
+        switch (node.getType()) {
+        case INT:
+            return new IntElement((IntNode) node, position);
+        case LONG:
+            return new LongElement((LongNode) node, position);
+        case STRING:
+            return new StringElement((StringNode) node, position);
+        case BLOCK:
+            return new BlockElement((BlockNode) node, source, position);
+        case BYTES:
+            return new ByteElement((ByteNode) node, position);
+        case FLOAT:
+            long currentPosition = source.position();
+            long length = readLength(source);
+            source.seek(currentPosition);
+            if (length == 4) {
+                return new FloatElement((FloatNode) node, position);
+            } else if (length == 8) {
+                return new DoubleElement((FloatNode) node, position);
+            }
+            throw new EBMLParsingException("Cannot determine type of float or " +
+                    "double for this element");
+        default:
+            throw new EBMLParsingException(
+                    "Cannot parse unset node");
+        }
+    }
+
+    /**
+     * Reads the children of this element
+     * @param source to read from, right after the size of this element
+     * @param len of the data of this element or UNKNOWN_LENGTH
+     * @param projection of the children to read or null to read all
+     * @param depth of the children for the projection
+     */
+    protected boolean readSection(EBMLSource source, long len, ParseProjection projection,
+            int depth) throws IOException {
         mSearchOnceFoundElement = null;
-        long upToLimit = raf.getFilePointer() + len;
-        while (raf.getFilePointer() < upToLimit) {
-            long position = raf.getFilePointer();
-            int id = readId(raf);
+        boolean unknownLength = len == UNKNOWN_LENGTH;
+        long start = source.position();
+        long upToLimit = unknownLength ? Long.MAX_VALUE : start + len;
+        while (source.position() < upToLimit) {
+            long position = source.position();
+            int id;
+            if (unknownLength) {
+                // Unknown sized elements end at the end of the data or when reaching an element
+                // that cannot be inside this one, leave the source at that element
+                try {
+                    id = readId(source);
+                } catch (EOFException e) {
+                    source.seek(position);
+                    break;
+                }
+                if (endsUnknownSize(mId, id)) {
+                    source.seek(position);
+                    break;
+                }
+            } else {
+                id = readId(source);
+            }
             // Lookup the id and parse its block
-            if (mSchema.getLookup().containsKey(id)) {
-
-                // Only allow ids if filter is active and is in it
-                if (filterIds == null || filterIds.contains(id)) {
-                    NodeBase nextNode = mSchema.getLookup().get(id);
-                    ElementBase element;
-                    switch (nextNode.getType()) {
-                    case INT:
-                        element = new IntElement((IntNode) nextNode, position);
-                        break;
-                    case LONG:
-                        element = new LongElement((LongNode) nextNode, position);
-                        break;
-                    case STRING:
-                        element = new StringElement((StringNode) nextNode, position);
-                        break;
-                    case BLOCK:
-                        if (filterTrackNumbers != null) {
-                            // Check to see if the block's track number is
-                            // allowed
-                            if (BlockElement.skipBlockIfNotTrackNumber(raf,
-                                    filterTrackNumbers)) {
-                                continue;
-                            }
-                        }
-                        element = new BlockElement((BlockNode) nextNode, raf, position);
-                        break;
-                    case MASTER:
+            NodeBase nextNode = mSchema.getNode(id);
+            if (nextNode != null) {
+
+                // Only read the element if the projection includes it
+                if (projection == null || projection.includes(id, depth)) {
+                    if (nextNode.getType() == NodeBase.Type.MASTER) {
                         // Parse master differently
                         MasterElement el = new MasterElement(
                                 (MasterNode) nextNode, position);
                         el.mSearchOnceId = mSearchOnceId;
 
-                        if (!el.read(raf, filterTrackNumbers, filterIds)) {
+                        if (!el.read(source, projection, depth + 1)) {
                             return false;
                         }
                         mElements.add(el);
@@ -400,29 +653,22 @@ public class MasterElement extends ElementBase {
                             return true;
                         }
                         continue;
-                    case BYTES:
-                        element = new ByteElement((ByteNode) nextNode, position);
-                        break;
-                    case FLOAT:
-                        long currentPosition = raf.getFilePointer();
-                        int length = readLength(raf);
-                        if (length == 4) {
-                            element = new FloatElement((FloatNode) nextNode, position);
-                        } else if (length == 8) {
-                            element = new DoubleElement((FloatNode) nextNode, position);
-                        } else {
-                            throw new EBMLParsingException("Cannot determine type of float or " +
-                                    "double for this element");
+                    }
+                    if (nextNode.getType() == NodeBase.Type.BLOCK && projection != null
+                            && projection.hasTrackFilter()) {
+                        // Check to see if the block's track number is allowed
+                        if (BlockElement.skipBlockIfNotTrackNumber(source, projection)) {
+                            projection.addSkipped(source.position() - position);
+                            continue;
                         }
-                        raf.seek(currentPosition);
-                        break;
-                    default:
-                        throw new EBMLParsingException(
-                                "Cannot parse unset node");
                     }
-                    if (!element.read(raf)) {
+                    ElementBase element = newValueElement(nextNode, source, position);
+                    if (!element.read(source)) {
                         return false;
                     }
+                    if (projection != null) {
+                        projection.addDecoded(source.position() - position);
+                    }
                     mElements.add(element);
                     if (mSearchOnceId == id) {
                         mSearchOnceFoundElement = element;
@@ -430,18 +676,19 @@ public class MasterElement extends ElementBase {
                     }
 
                 } else {
-                    // Skip this data because it did not pass through the filter
-                    raf.skipBytes(readLength(raf));
+                    // Skip this data because the projection left it out
+                    skipData(source);
+                    projection.addSkipped(source.position() - position);
                 }
-            } else if (id == VOID) {
-                // This section is void, so ignore it
-                raf.skipBytes(readLength(raf));
             } else {
-                Log.w(TAG, "This master does not have id 0x"
-                        + Integer.toHexString(id) + " in its schema");
-                raf.skipBytes(readLength(raf));
+                // Void or not in the schema, so ignore it
+                skipData(source);
             }
         }
+        if (unknownLength) {
+            mInnerLength = source.position() - start;
+            mLength = source.position() - mPosition;
+        }
         return true;
     }
 
@@ -453,9 +700,88 @@ public class MasterElement extends ElementBase {
     public StringBuilder output(int level) {
         StringBuilder sb = super.output(level);
         Log.v(TAG, sb.toString() + "MASTER [" + hexId() + "]");
+        readAllLazyElements();
         for (int i = 0; i < mElements.size(); i++) {
             mElements.get(i).output(level + 1);
         }
         return null;
     }
+
+    /**
+     * Open addressing table from child id to the index of its first child in the list of
+     * children, children with the same id are chained in order. The table is sized by the
+     * amount of distinct ids, so many children with the same id only grow the chains.
+     */
+    private static final class ChildIndex {
+        private static final int INITIAL_BITS = 3;
+
+        private int[] mIds;
+        private int[] mFirst;
+        private final int[] mNext;
+        private int mBits;
+        private int mDistinct;
+
+        ChildIndex(ArrayList<ElementBase> elements) {
+            mBits = INITIAL_BITS;
+            mIds = new int[1 << mBits];
+            mFirst = new int[1 << mBits];
+            mNext = new int[elements.size()];
+
+            // Go backwards so each chain ends up in the order of the children
+            for (int i = elements.size() - 1; i >= 0; i--) {
+                int id = elements.get(i).mId;
+                int slot = slot(id);
+                if (mIds[slot] == id) {
+                    mNext[i] = mFirst[slot];
+                } else {
+                    if ((mDistinct + 1) * 2 > mIds.length) {
+                        grow();
+                        slot = slot(id);
+                    }
+                    mIds[slot] = id;
+                    mDistinct++;
+                    mNext[i] = -1;
+                }
+                mFirst[slot] = i;
+            }
+        }
+
+        int size() {
+            return mNext.length;
+        }
+
+        int first(int id) {
+            int slot = slot(id);
+            return mIds[slot] == id && id != 0 ? mFirst[slot] : -1;
+        }
+
+        int next(int index) {
+            return mNext[index];
+        }
+
+        // Double the table, the chains are kept since they refer to the children by index
+        private void grow() {
+            int[] ids = mIds;
+            int[] first = mFirst;
+            mBits++;
+            mIds = new int[1 << mBits];
+            mFirst = new int[1 << mBits];
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != 0) {
+                    int slot = slot(ids[i]);
+                    mIds[slot] = ids[i];
+                    mFirst[slot] = first[i];
+                }
+            }
+        }
+
+        private int slot(int id) {
+            int mask = mIds.length - 1;
+            int slot = (id * 0x9E3779B9) >>> (32 - mBits);
+            while (mIds[slot] != 0 && mIds[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
 }
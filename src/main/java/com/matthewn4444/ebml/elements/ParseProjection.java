@@ -0,0 +1,180 @@
+package com.matthewn4444.ebml.elements;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Describes which elements to read when parsing a master element. Elements that are left out are
+ * skipped with a single seek, including all their children, and blocks of tracks that are left
+ * out are skipped after reading their track number.
+ *
+ * Usage:
+ *      ParseProjection projection = new ParseProjection.Builder()
+ *              .onlyIdsAtDepth(0, Cluster.TIMECODE, Cluster.BLOCK_GROUP)
+ *              .onlyIdsAtDepth(1, Cluster.BLOCK_ID, Cluster.BLOCK_DURATION)
+ *              .onlyTracks(subtitleTrackNumber)
+ *              .build();
+ *      clusterElement.parse(source, projection);
+ *
+ * Depth 0 is the children of the element being parsed. The projection keeps count of how many
+ * bytes it skipped and decoded, it is not thread safe so use one projection per thread.
+ * EBMLReader takes a projection in readElement(), see there for why its other read methods do
+ * not.
+ */
+public final class ParseProjection {
+    private final int[] mIds;
+    private final int[][] mDepthIds;
+    private final int[] mTrackNumbers;
+
+    private long mSkippedBytes;
+    private long mDecodedBytes;
+
+    public static class Builder {
+        private int[] mIds;
+        private int[][] mDepthIds = new int[0][];
+        private int[] mTrackNumbers;
+
+        /**
+         * Only read elements with these ids at any depth
+         * @param ids to read
+         * @return this builder
+         */
+        public Builder onlyIds(int... ids) {
+            mIds = merge(mIds, ids);
+            return this;
+        }
+
+        /**
+         * Only read elements with these ids at this depth, other depths are not affected
+         * @param depth of the elements, 0 is the children of the element being parsed
+         * @param ids to read
+         * @return this builder
+         */
+        public Builder onlyIdsAtDepth(int depth, int... ids) {
+            if (depth >= mDepthIds.length) {
+                mDepthIds = Arrays.copyOf(mDepthIds, depth + 1);
+            }
+            mDepthIds[depth] = merge(mDepthIds[depth], ids);
+            return this;
+        }
+
+        /**
+         * Only read blocks and simple blocks of these tracks
+         * @param trackNumbers to read
+         * @return this builder
+         */
+        public Builder onlyTracks(int... trackNumbers) {
+            mTrackNumbers = merge(mTrackNumbers, trackNumbers);
+            return this;
+        }
+
+        public ParseProjection build() {
+            return new ParseProjection(mIds, mDepthIds.clone(), mTrackNumbers);
+        }
+
+        private static int[] merge(int[] current, int[] values) {
+            int[] merged;
+            if (current == null) {
+                merged = values.clone();
+            } else {
+                merged = Arrays.copyOf(current, current.length + values.length);
+                System.arraycopy(values, 0, merged, current.length, values.length);
+            }
+            Arrays.sort(merged);
+            return merged;
+        }
+    }
+
+    /**
+     * Create a projection from the sets of track numbers and ids that MasterElement.parse() takes
+     * @param trackNumbers of blocks to read or null for all
+     * @param ids to read at any depth or null for all
+     * @return the projection or null if there is nothing to filter
+     */
+    static ParseProjection fromFilters(Set<Integer> trackNumbers, Set<Integer> ids) {
+        if (trackNumbers == null && ids == null) {
+            return null;
+        }
+        return new ParseProjection(toSortedArray(ids), new int[0][], toSortedArray(trackNumbers));
+    }
+
+    private ParseProjection(int[] ids, int[][] depthIds, int[] trackNumbers) {
+        mIds = ids;
+        mDepthIds = depthIds;
+        mTrackNumbers = trackNumbers;
+    }
+
+    /**
+     * Check if an element should be read
+     * @param id of the element
+     * @param depth of the element
+     * @return whether to read it
+     */
+    public boolean includes(int id, int depth) {
+        if (mIds != null && Arrays.binarySearch(mIds, id) < 0) {
+            return false;
+        }
+        return depth >= mDepthIds.length || mDepthIds[depth] == null
+                || Arrays.binarySearch(mDepthIds[depth], id) >= 0;
+    }
+
+    /**
+     * Check if the blocks of a track should be read
+     * @param trackNumber of the block
+     * @return whether to read it
+     */
+    public boolean includesTrack(int trackNumber) {
+        return mTrackNumbers == null || Arrays.binarySearch(mTrackNumbers, trackNumber) >= 0;
+    }
+
+    /**
+     * Check if this projection filters blocks by track
+     * @return if only some tracks are read
+     */
+    public boolean hasTrackFilter() {
+        return mTrackNumbers != null;
+    }
+
+    /**
+     * Get the amount of bytes of elements that were left out since the last reset
+     * @return skipped bytes
+     */
+    public long getSkippedBytes() {
+        return mSkippedBytes;
+    }
+
+    /**
+     * Get the amount of bytes of elements that were read since the last reset, this does not
+     * count the ids and sizes of master elements
+     * @return decoded bytes
+     */
+    public long getDecodedBytes() {
+        return mDecodedBytes;
+    }
+
+    public void resetStats() {
+        mSkippedBytes = 0;
+        mDecodedBytes = 0;
+    }
+
+    void addSkipped(long bytes) {
+        mSkippedBytes += bytes;
+    }
+
+    void addDecoded(long bytes) {
+        mDecodedBytes += bytes;
+    }
+
+    private static int[] toSortedArray(Set<Integer> set) {
+        if (set == null) {
+            return null;
+        }
+        int[] array = new int[set.size()];
+        int i = 0;
+        for (Integer value : set) {
+            array[i++] = value;
+        }
+        Arrays.sort(array);
+        return array;
+    }
+}
@@ -3,11 +3,11 @@ package com.matthewn4444.ebml.elements;
 import android.util.Log;
 
 import com.matthewn4444.ebml.EBMLException;
+import com.matthewn4444.ebml.io.EBMLSource;
 import com.matthewn4444.ebml.node.NodeBase;
 import com.matthewn4444.ebml.node.StringNode;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 
 public class StringElement extends ElementBase {
@@ -29,16 +29,16 @@ public class StringElement extends ElementBase {
     }
 
     @Override
-    boolean read(RandomAccessFile raf) throws IOException {
-        super.read(raf);
+    boolean read(EBMLSource source) throws IOException {
+        super.read(source);
 
         int size = (int) mInnerLength;
         if (size != mInnerLength) {
             throw new EBMLException("Cannot use length as buffer because it is too long!");
         }
         byte[] buffer = new byte[(int) mInnerLength];
-        raf.read(buffer);
-        mData = new String(buffer, "utf8");
+        source.readFully(buffer, 0, size);
+        mData = new String(buffer, CHARSET);
         return true;
     }
 
@@ -0,0 +1,165 @@
+package com.matthewn4444.ebml.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * Reads the backing data in windows so that parsing ids, lengths and small values are served from
+ * memory instead of going to the backing storage for every byte. Seeking only moves the logical
+ * position, the window is refilled when a read falls outside of it.
+ */
+public abstract class BufferedSource implements EBMLSource {
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+    private final byte[] mWindow;
+    private long mWindowStart;
+    private int mWindowLength;
+    private long mPosition;
+
+    protected BufferedSource(long position, int windowSize) {
+        mWindow = new byte[windowSize];
+        mPosition = position;
+    }
+
+    /**
+     * Read bytes from the backing storage at the position given. This must not depend on any
+     * shared file pointer since positional reads can happen from multiple threads.
+     * @param position to read from
+     * @param buffer to write to
+     * @param offset in the buffer
+     * @param length maximum amount of bytes to read
+     * @return amount of bytes read or -1 if position is at the end of the data
+     * @throws IOException
+     */
+    protected abstract int readAt(long position, byte[] buffer, int offset, int length)
+            throws IOException;
+
+    @Override
+    public long position() {
+        return mPosition;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0) {
+            throw new IOException("Cannot seek to negative position " + position);
+        }
+        mPosition = position;
+    }
+
+    @Override
+    public void skip(long count) throws IOException {
+        seek(mPosition + count);
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        int offset = require(1);
+        mPosition++;
+        return mWindow[offset];
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        int offset = require(2);
+        mPosition += 2;
+        return (short) (((mWindow[offset] & 0xFF) << 8) | (mWindow[offset + 1] & 0xFF));
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int offset = require(4);
+        mPosition += 4;
+        return ((mWindow[offset] & 0xFF) << 24) | ((mWindow[offset + 1] & 0xFF) << 16)
+                | ((mWindow[offset + 2] & 0xFF) << 8) | (mWindow[offset + 3] & 0xFF);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        int offset = require(8);
+        mPosition += 8;
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (mWindow[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public void readFully(byte[] buffer, int offset, int length) throws IOException {
+        // Copy whatever the window already has
+        if (mPosition >= mWindowStart && mPosition < mWindowStart + mWindowLength) {
+            int windowOffset = (int) (mPosition - mWindowStart);
+            int count = Math.min(length, mWindowLength - windowOffset);
+            System.arraycopy(mWindow, windowOffset, buffer, offset, count);
+            mPosition += count;
+            offset += count;
+            length -= count;
+        }
+        if (length == 0) {
+            return;
+        }
+
+        // Large reads go straight into the caller's buffer instead of through the window
+        if (length >= mWindow.length) {
+            readFully(mPosition, buffer, offset, length);
+            mPosition += length;
+        } else {
+            int windowOffset = require(length);
+            System.arraycopy(mWindow, windowOffset, buffer, offset, length);
+            mPosition += length;
+        }
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int offset, int length)
+            throws IOException {
+        while (length > 0) {
+            int read = readAt(position, buffer, offset, length);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+            offset += read;
+            length -= read;
+        }
+    }
+
+    /**
+     * Makes sure the window contains the amount of bytes from the current position, refilling the
+     * window if it does not
+     * @param count amount of bytes needed
+     * @return offset in the window for the current position
+     * @throws IOException if there is not enough data left
+     */
+    private int require(int count) throws IOException {
+        if (mPosition < mWindowStart || mPosition + count > mWindowStart + mWindowLength) {
+            mWindowStart = mPosition;
+            mWindowLength = 0;
+            while (mWindowLength < count) {
+                int read = readAt(mWindowStart + mWindowLength, mWindow, mWindowLength,
+                        mWindow.length - mWindowLength);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                mWindowLength += read;
+            }
+        }
+        return (int) (mPosition - mWindowStart);
+    }
+}
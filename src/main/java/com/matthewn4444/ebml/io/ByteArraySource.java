@@ -0,0 +1,64 @@
+package com.matthewn4444.ebml.io;
+
+import java.io.IOException;
+
+/**
+ * Source over bytes in memory that were copied from a region of a larger file. Positions are the
+ * positions in that file so elements parsed from it have the same positions as if they were read
+ * from the file itself, reading outside of the region fails.
+ */
+public class ByteArraySource extends BufferedSource {
+    private static final int WINDOW_SIZE = 4 * 1024;
+
+    private final byte[] mData;
+    private final long mOffset;
+
+    public ByteArraySource(byte[] data) {
+        this(data, 0);
+    }
+
+    /**
+     * Read from bytes that were copied from a region of a file
+     * @param data of the region
+     * @param offset position of the region in the file, the source starts here
+     */
+    public ByteArraySource(byte[] data, long offset) {
+        this(data, offset, offset);
+    }
+
+    private ByteArraySource(byte[] data, long offset, long position) {
+        super(position, WINDOW_SIZE);
+        mData = data;
+        mOffset = offset;
+    }
+
+    @Override
+    protected int readAt(long position, byte[] buffer, int offset, int length)
+            throws IOException {
+        if (position < mOffset) {
+            throw new IOException("Cannot read at 0x" + Long.toHexString(position)
+                    + ", data starts at 0x" + Long.toHexString(mOffset));
+        }
+        long index = position - mOffset;
+        if (index >= mData.length) {
+            return -1;
+        }
+        int count = (int) Math.min(length, mData.length - index);
+        System.arraycopy(mData, (int) index, buffer, offset, count);
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return mOffset + mData.length;
+    }
+
+    @Override
+    public EBMLSource duplicate() {
+        return new ByteArraySource(mData, mOffset, position());
+    }
+
+    @Override
+    public void close() {
+    }
+}
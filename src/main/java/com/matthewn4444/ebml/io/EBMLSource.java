@@ -0,0 +1,89 @@
+package com.matthewn4444.ebml.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of EBML bytes that the parser reads from. The position is tracked logically by the
+ * source so implementations are free to buffer, map or stream the data underneath.
+ *
+ * Sources are not thread safe, if a source is shared between threads then synchronize on it
+ * before seeking and reading. The exception is readFully(long, byte[], int, int) which reads at an
+ * absolute position without touching the read position, so it can be called from any thread. Use
+ * duplicate() to get another read position over the same data for parsing on another thread.
+ */
+public interface EBMLSource extends Closeable {
+    /**
+     * Get the current read position of this source
+     * @return position from the start of the data
+     */
+    long position();
+
+    /**
+     * Move the read position
+     * @param position from the start of the data
+     * @throws IOException
+     */
+    void seek(long position) throws IOException;
+
+    /**
+     * Move the read position forward
+     * @param count amount of bytes to skip
+     * @throws IOException
+     */
+    void skip(long count) throws IOException;
+
+    /**
+     * Get the total length of the data
+     * @return length in bytes or -1 if it is not known
+     * @throws IOException
+     */
+    long length() throws IOException;
+
+    /**
+     * Whether data that was already passed can be read again. Parsers keep the data of blocks in
+     * memory when reading from sources that are not seekable.
+     * @return false for forward only sources such as streams
+     */
+    boolean isSeekable();
+
+    byte readByte() throws IOException;
+
+    short readShort() throws IOException;
+
+    int readInt() throws IOException;
+
+    long readLong() throws IOException;
+
+    float readFloat() throws IOException;
+
+    double readDouble() throws IOException;
+
+    /**
+     * Read exactly the amount of bytes requested from the current position
+     * @param buffer to write to
+     * @param offset in the buffer
+     * @param length amount of bytes to read
+     * @throws IOException if the end of the data is reached before filling the buffer
+     */
+    void readFully(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Read exactly the amount of bytes requested at the position given without moving the read
+     * position of this source. This is safe to call from multiple threads at the same time.
+     * @param position to read from
+     * @param buffer to write to
+     * @param offset in the buffer
+     * @param length amount of bytes to read
+     * @throws IOException if the end of the data is reached before filling the buffer
+     */
+    void readFully(long position, byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Create another source over the same data that has its own read position. Closing the
+     * duplicate does not close this source.
+     * @return a new source starting at the same position
+     * @throws IOException
+     */
+    EBMLSource duplicate() throws IOException;
+}
@@ -0,0 +1,297 @@
+package com.matthewn4444.ebml.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Source that reads a file through memory mapped segments so data is decoded straight from the
+ * page cache. Files larger than a segment are mapped in windows, each window is only mapped the
+ * first time it is read from. Only a few windows stay mapped, the oldest one is dropped when
+ * another is mapped and its mapping is released once nothing reads from it anymore. This keeps
+ * the address space used small enough for 32 bit processes. Duplicates share the mapped windows
+ * of the source they came from.
+ */
+public class MappedFileSource implements EBMLSource {
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    public static final int DEFAULT_MAX_MAPPED_SEGMENTS = 4;
+
+    private final RandomAccessFile mFile;
+    private final FileChannel mChannel;
+    private final long mLength;
+    private final int mSegmentSize;
+    private final Segments mSegments;
+    private final boolean mOwnsFile;
+
+    private long mPosition;
+
+    // Last window used by this source, so reads inside it do not look at the shared windows
+    private volatile Segment mCurrent;
+
+    private static final class Segment {
+        final int mIndex;
+        final MappedByteBuffer mBuffer;
+
+        Segment(int index, MappedByteBuffer buffer) {
+            mIndex = index;
+            mBuffer = buffer;
+        }
+    }
+
+    // Windows shared by a source and its duplicates
+    private static final class Segments {
+        final AtomicReferenceArray<MappedByteBuffer> mBuffers;
+
+        // Indices of the mapped windows in the order they were mapped, guarded by this
+        final int[] mMapped;
+        int mMappedStart;
+        int mMappedCount;
+
+        Segments(int count, int maxMapped) {
+            mBuffers = new AtomicReferenceArray<>(count);
+            mMapped = new int[maxMapped];
+        }
+    }
+
+    /**
+     * Map a file to read.
+     * @param path file to open
+     * @throws IOException
+     */
+    public MappedFileSource(String path) throws IOException {
+        this(new RandomAccessFile(path, "r"), DEFAULT_SEGMENT_SIZE, DEFAULT_MAX_MAPPED_SEGMENTS);
+    }
+
+    /**
+     * Map an already opened file, the source will close the file when it is closed
+     * @param randomAccessFile to be mapped
+     * @param segmentSize size of each mapped window
+     * @throws IOException
+     */
+    public MappedFileSource(RandomAccessFile randomAccessFile, int segmentSize)
+            throws IOException {
+        this(randomAccessFile, segmentSize, DEFAULT_MAX_MAPPED_SEGMENTS);
+    }
+
+    /**
+     * Map an already opened file, the source will close the file when it is closed
+     * @param randomAccessFile to be mapped
+     * @param segmentSize size of each mapped window
+     * @param maxMappedSegments amount of windows that stay mapped at the same time
+     * @throws IOException
+     */
+    public MappedFileSource(RandomAccessFile randomAccessFile, int segmentSize,
+                            int maxMappedSegments) throws IOException {
+        if (segmentSize <= 8) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        if (maxMappedSegments < 1) {
+            throw new IllegalArgumentException("Must map at least one segment: "
+                    + maxMappedSegments);
+        }
+        mFile = randomAccessFile;
+        mChannel = randomAccessFile.getChannel();
+        mLength = mChannel.size();
+        mSegmentSize = segmentSize;
+        mSegments = new Segments((int) ((mLength + segmentSize - 1) / segmentSize),
+                maxMappedSegments);
+        mPosition = randomAccessFile.getFilePointer();
+        mOwnsFile = true;
+    }
+
+    private MappedFileSource(MappedFileSource source) {
+        mFile = source.mFile;
+        mChannel = source.mChannel;
+        mLength = source.mLength;
+        mSegmentSize = source.mSegmentSize;
+        mSegments = source.mSegments;
+        mPosition = source.mPosition;
+        mCurrent = source.mCurrent;
+        mOwnsFile = false;
+    }
+
+    @Override
+    public long position() {
+        return mPosition;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < 0) {
+            throw new IOException("Cannot seek to negative position " + position);
+        }
+        mPosition = position;
+    }
+
+    @Override
+    public void skip(long count) throws IOException {
+        seek(mPosition + count);
+    }
+
+    @Override
+    public long length() {
+        return mLength;
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return true;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        byte value = segmentAt(mPosition).get(offsetOf(mPosition));
+        mPosition++;
+        return value;
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        if (fitsInSegment(2)) {
+            short value = segmentAt(mPosition).getShort(offsetOf(mPosition));
+            mPosition += 2;
+            return value;
+        }
+        return (short) readAcrossSegments(2);
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        if (fitsInSegment(4)) {
+            int value = segmentAt(mPosition).getInt(offsetOf(mPosition));
+            mPosition += 4;
+            return value;
+        }
+        return (int) readAcrossSegments(4);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        if (fitsInSegment(8)) {
+            long value = segmentAt(mPosition).getLong(offsetOf(mPosition));
+            mPosition += 8;
+            return value;
+        }
+        return readAcrossSegments(8);
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public void readFully(byte[] buffer, int offset, int length) throws IOException {
+        readFully(mPosition, buffer, offset, length);
+        mPosition += length;
+    }
+
+    @Override
+    public void readFully(long position, byte[] buffer, int offset, int length)
+            throws IOException {
+        if (position + length > mLength) {
+            throw new EOFException();
+        }
+        while (length > 0) {
+            // Duplicate the window so its position is not shared with other threads
+            ByteBuffer segment = segmentAt(position).duplicate();
+            int segmentOffset = offsetOf(position);
+            int count = Math.min(length, segment.limit() - segmentOffset);
+            segment.position(segmentOffset);
+            segment.get(buffer, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    @Override
+    public EBMLSource duplicate() {
+        return new MappedFileSource(this);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Mapped buffers are released once they are garbage collected
+        mCurrent = null;
+        if (mOwnsFile) {
+            synchronized (mSegments) {
+                for (int i = 0; i < mSegments.mBuffers.length(); i++) {
+                    mSegments.mBuffers.set(i, null);
+                }
+                mSegments.mMappedCount = 0;
+            }
+            mFile.close();
+        }
+    }
+
+    private boolean fitsInSegment(int count) throws IOException {
+        if (mPosition + count > mLength) {
+            throw new EOFException();
+        }
+        return offsetOf(mPosition) + count <= mSegmentSize;
+    }
+
+    private long readAcrossSegments(int count) throws IOException {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = (value << 8) | (readByte() & 0xFF);
+        }
+        return value;
+    }
+
+    private int offsetOf(long position) {
+        return (int) (position % mSegmentSize);
+    }
+
+    private MappedByteBuffer segmentAt(long position) throws IOException {
+        if (position >= mLength) {
+            throw new EOFException();
+        }
+        int index = (int) (position / mSegmentSize);
+        Segment current = mCurrent;
+        if (current != null && current.mIndex == index) {
+            return current.mBuffer;
+        }
+        MappedByteBuffer buffer = mSegments.mBuffers.get(index);
+        if (buffer == null) {
+            buffer = mapSegment(index);
+        }
+        mCurrent = new Segment(index, buffer);
+        return buffer;
+    }
+
+    private MappedByteBuffer mapSegment(int index) throws IOException {
+        synchronized (mSegments) {
+            // Another thread could have mapped it while waiting
+            MappedByteBuffer buffer = mSegments.mBuffers.get(index);
+            if (buffer != null) {
+                return buffer;
+            }
+            long start = (long) index * mSegmentSize;
+            buffer = mChannel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(mSegmentSize, mLength - start));
+
+            // Drop the oldest window, sources still reading it keep it until they move on
+            int[] mapped = mSegments.mMapped;
+            if (mSegments.mMappedCount == mapped.length) {
+                mSegments.mBuffers.set(mapped[mSegments.mMappedStart], null);
+                mSegments.mMappedStart = (mSegments.mMappedStart + 1) % mapped.length;
+                mSegments.mMappedCount--;
+            }
+            mapped[(mSegments.mMappedStart + mSegments.mMappedCount) % mapped.length] = index;
+            mSegments.mMappedCount++;
+            mSegments.mBuffers.set(index, buffer);
+            return buffer;
+        }
+    }
+}
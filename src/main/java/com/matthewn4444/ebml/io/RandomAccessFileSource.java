@@ -0,0 +1,81 @@
+package com.matthewn4444.ebml.io;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Buffered source backed by a RandomAccessFile. The data is read with positional channel reads so
+ * the file pointer of the RandomAccessFile is never moved and reads never contend on it.
+ */
+public class RandomAccessFileSource extends BufferedSource {
+    private final RandomAccessFile mRaf;
+    private final FileChannel mChannel;
+    private final boolean mOwnsFile;
+
+    /**
+     * Open a file to read.
+     * @param path file to open
+     * @throws IOException
+     */
+    public RandomAccessFileSource(String path) throws IOException {
+        this(new RandomAccessFile(path, "r"));
+    }
+
+    /**
+     * Read from an already opened file starting from its current file pointer
+     * @param randomAccessFile to be read
+     * @throws IOException
+     */
+    public RandomAccessFileSource(RandomAccessFile randomAccessFile) throws IOException {
+        this(randomAccessFile, DEFAULT_WINDOW_SIZE);
+    }
+
+    public RandomAccessFileSource(RandomAccessFile randomAccessFile, int windowSize)
+            throws IOException {
+        this(randomAccessFile, randomAccessFile.getFilePointer(), windowSize, true);
+    }
+
+    /**
+     * Read from an already opened file starting from a position, the file pointer is not used
+     * @param randomAccessFile to be read
+     * @param position to start reading from
+     * @param windowSize size of the read buffer
+     */
+    public RandomAccessFileSource(RandomAccessFile randomAccessFile, long position,
+                                  int windowSize) {
+        this(randomAccessFile, position, windowSize, true);
+    }
+
+    private RandomAccessFileSource(RandomAccessFile randomAccessFile, long position,
+                                   int windowSize, boolean ownsFile) {
+        super(position, windowSize);
+        mRaf = randomAccessFile;
+        mChannel = randomAccessFile.getChannel();
+        mOwnsFile = ownsFile;
+    }
+
+    @Override
+    protected int readAt(long position, byte[] buffer, int offset, int length)
+            throws IOException {
+        return mChannel.read(ByteBuffer.wrap(buffer, offset, length), position);
+    }
+
+    @Override
+    public long length() throws IOException {
+        return mChannel.size();
+    }
+
+    @Override
+    public EBMLSource duplicate() {
+        return new RandomAccessFileSource(mRaf, position(), DEFAULT_WINDOW_SIZE, false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (mOwnsFile) {
+            mRaf.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.matthewn4444.ebml.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Forward only source for data that cannot be seeked such as pipes, sockets or stdin. Data is read
+ * into a window and only a few bytes behind the read position are kept, so seeking backwards is
+ * only possible for the small look backs that the parser does. Seeking forward reads and discards
+ * the data in between.
+ */
+public class StreamSource implements EBMLSource {
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024;
+
+    // Amount of bytes kept before the read position when the window moves forward
+    private static final int KEEP_BEHIND = 16;
+
+    private final ReadableByteChannel mChannel;
+    private final byte[] mWindow;
+    private long mWindowStart;
+    private int mWindowLength;
+    private long mPosition;
+
+    public StreamSource(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    public StreamSource(ReadableByteChannel channel) {
+        this(channel, DEFAULT_WINDOW_SIZE);
+    }
+
+    public StreamSource(ReadableByteChannel channel, int windowSize) {
+        if (windowSize <= KEEP_BEHIND * 2) {
+            throw new IllegalArgumentException("Window size is too small: " + windowSize);
+        }
+        mChannel = channel;
+        mWindow = new byte[windowSize];
+    }
+
+    @Override
+    public long position() {
+        return mPosition;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        if (position < mWindowStart) {
+            throw new IOException("Cannot seek backwards in a stream to 0x"
+                    + Long.toHexString(position) + ", earliest position is 0x"
+                    + Long.toHexString(mWindowStart));
+        }
+        mPosition = position;
+    }
+
+    @Override
+    public void skip(long count) throws IOException {
+        seek(mPosition + count);
+    }
+
+    /**
+     * Streams do not know their length
+     * @return -1
+     */
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public boolean isSeekable() {
+        return false;
+    }
+
+    @Override
+    public byte readByte() throws IOException {
+        int offset = require(1);
+        mPosition++;
+        return mWindow[offset];
+    }
+
+    @Override
+    public short readShort() throws IOException {
+        int offset = require(2);
+        mPosition += 2;
+        return (short) (((mWindow[offset] & 0xFF) << 8) | (mWindow[offset + 1] & 0xFF));
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        int offset = require(4);
+        mPosition += 4;
+        return ((mWindow[offset] & 0xFF) << 24) | ((mWindow[offset + 1] & 0xFF) << 16)
+                | ((mWindow[offset + 2] & 0xFF) << 8) | (mWindow[offset + 3] & 0xFF);
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        int offset = require(8);
+        mPosition += 8;
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (mWindow[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return Float.intBitsToFloat(readInt());
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    @Override
+    public void readFully(byte[] buffer, int offset, int length) throws IOException {
+        while (length > 0) {
+            int count = Math.min(length, mWindow.length - KEEP_BEHIND);
+            int windowOffset = require(count);
+            System.arraycopy(mWindow, windowOffset, buffer, offset, count);
+            mPosition += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    /**
+     * Streams can only read data that is still in the window
+     */
+    @Override
+    public void readFully(long position, byte[] buffer, int offset, int length)
+            throws IOException {
+        if (position < mWindowStart || position + length > mWindowStart + mWindowLength) {
+            throw new IOException("Data at 0x" + Long.toHexString(position)
+                    + " is no longer available in the stream");
+        }
+        System.arraycopy(mWindow, (int) (position - mWindowStart), buffer, offset, length);
+    }
+
+    @Override
+    public EBMLSource duplicate() throws IOException {
+        throw new IOException("Streams cannot be duplicated");
+    }
+
+    @Override
+    public void close() throws IOException {
+        mChannel.close();
+    }
+
+    /**
+     * Makes sure the window contains the amount of bytes from the current position, reading more
+     * from the stream if it does not
+     * @param count amount of bytes needed
+     * @return offset in the window for the current position
+     * @throws IOException if the stream ends before there is enough data
+     */
+    private int require(int count) throws IOException {
+        long windowEnd = mWindowStart + mWindowLength;
+        if (mPosition + count <= windowEnd) {
+            return (int) (mPosition - mWindowStart);
+        }
+
+        if (mPosition > windowEnd) {
+            // Discard everything up to the read position
+            discard(mPosition - windowEnd);
+            mWindowStart = mPosition;
+            mWindowLength = 0;
+        } else {
+            // Move the unread data and a little bit before it to the front of the window
+            long keepFrom = Math.max(mWindowStart, mPosition - KEEP_BEHIND);
+            int keepOffset = (int) (keepFrom - mWindowStart);
+            System.arraycopy(mWindow, keepOffset, mWindow, 0, mWindowLength - keepOffset);
+            mWindowLength -= keepOffset;
+            mWindowStart = keepFrom;
+        }
+
+        while (mWindowStart + mWindowLength < mPosition + count) {
+            int read = mChannel.read(ByteBuffer.wrap(mWindow, mWindowLength,
+                    mWindow.length - mWindowLength));
+            if (read < 0) {
+                throw new EOFException();
+            }
+            mWindowLength += read;
+        }
+        return (int) (mPosition - mWindowStart);
+    }
+
+    private void discard(long count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(mWindow);
+        while (count > 0) {
+            buffer.clear();
+            buffer.limit((int) Math.min(count, mWindow.length));
+            int read = mChannel.read(buffer);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            count -= read;
+        }
+    }
+}
@@ -1,7 +1,23 @@
 package com.matthewn4444.ebml.node;
 
 public class ByteNode extends NodeBase {
+    private final boolean mKeepsData;
+
     public ByteNode(int elementId) {
+        this(elementId, false);
+    }
+
+    /**
+     * @param elementId id of the element
+     * @param keepsData true to read the data when parsed, for small values that are needed after
+     *                  the source has moved on such as with streams
+     */
+    public ByteNode(int elementId, boolean keepsData) {
         super(NodeBase.Type.BYTES, elementId);
+        mKeepsData = keepsData;
+    }
+
+    public boolean keepsData() {
+        return mKeepsData;
     }
 }
@@ -2,17 +2,32 @@ package com.matthewn4444.ebml.node;
 
 public class IntNode extends NodeBase {
     protected int mDefaultValue;
+    protected final boolean mSigned;
 
     public IntNode(int elementId) {
         this(elementId, 0);
     }
 
     public IntNode(int elementId, int defaultValue) {
+        this(elementId, defaultValue, false);
+    }
+
+    /**
+     * @param elementId id of the element
+     * @param defaultValue value when the element is empty
+     * @param signed true if the value is a signed integer, such as a reference block
+     */
+    public IntNode(int elementId, int defaultValue, boolean signed) {
         super(NodeBase.Type.INT, elementId);
         mDefaultValue = defaultValue;
+        mSigned = signed;
     }
 
     public int getDefault() {
         return mDefaultValue;
     }
+
+    public boolean isSigned() {
+        return mSigned;
+    }
 }
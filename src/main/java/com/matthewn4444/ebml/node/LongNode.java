@@ -2,17 +2,32 @@ package com.matthewn4444.ebml.node;
 
 public class LongNode extends NodeBase {
     protected long mDefaultValue;
+    protected final boolean mSigned;
 
     public LongNode(int elementId) {
         this(elementId, 0);
     }
 
     public LongNode(int elementId, long defaultValue) {
+        this(elementId, defaultValue, false);
+    }
+
+    /**
+     * @param elementId id of the element
+     * @param defaultValue value when the element is empty
+     * @param signed true if the value is a signed integer, such as a reference block
+     */
+    public LongNode(int elementId, long defaultValue, boolean signed) {
         super(NodeBase.Type.LONG, elementId);
         mDefaultValue = defaultValue;
+        mSigned = signed;
     }
 
     public long getDefault() {
         return mDefaultValue;
     }
+
+    public boolean isSigned() {
+        return mSigned;
+    }
 }
@@ -1,20 +1,91 @@
 package com.matthewn4444.ebml.node;
 
-import java.util.HashMap;
-
 public class MasterNode extends NodeBase {
-    private final HashMap<Integer, NodeBase> mLookup;
+    private static final int INITIAL_CAPACITY = 8;
+
+    // Open addressing table of the child nodes keyed by id, ids are looked up for every element
+    // that is parsed so this avoids boxing them. The capacity is a power of 2 and at most half full.
+    private int[] mIds;
+    private NodeBase[] mNodes;
+    private int mSize;
 
     public MasterNode(int elementId) {
         super(NodeBase.Type.MASTER, elementId);
-        mLookup = new HashMap<Integer, NodeBase>();
+        mIds = new int[INITIAL_CAPACITY];
+        mNodes = new NodeBase[INITIAL_CAPACITY];
     }
 
     public void addNode(NodeBase node) {
-        mLookup.put(node.id(), node);
+        if ((mSize + 1) * 2 > mIds.length) {
+            int[] ids = mIds;
+            NodeBase[] nodes = mNodes;
+            mIds = new int[ids.length * 2];
+            mNodes = new NodeBase[nodes.length * 2];
+            mSize = 0;
+            for (int i = 0; i < nodes.length; i++) {
+                if (nodes[i] != null) {
+                    put(nodes[i]);
+                }
+            }
+        }
+        put(node);
+    }
+
+    /**
+     * Get the child node with the id
+     * @param id of the child
+     * @return the node or null if it is not a child of this node
+     */
+    public NodeBase getNode(int id) {
+        int mask = mIds.length - 1;
+        int i = slot(id) & mask;
+        NodeBase node;
+        while ((node = mNodes[i]) != null) {
+            if (mIds[i] == id) {
+                return node;
+            }
+            i = (i + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Check if the id is a child of this node
+     * @param id of the child
+     * @return if it is a child
+     */
+    public boolean hasNode(int id) {
+        return getNode(id) != null;
+    }
+
+    /**
+     * Get the amount of child nodes
+     * @return size
+     */
+    public int size() {
+        return mSize;
+    }
+
+    private void put(NodeBase node) {
+        int id = node.id();
+        int mask = mIds.length - 1;
+        int i = slot(id) & mask;
+        while (mNodes[i] != null) {
+            if (mIds[i] == id) {
+                // Same id replaces the previous node
+                mNodes[i] = node;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        mIds[i] = id;
+        mNodes[i] = node;
+        mSize++;
     }
 
-    public HashMap<Integer, NodeBase> getLookup() {
-        return mLookup;
+    private static int slot(int id) {
+        // Ids share their leading length bits, so spread the rest over the table
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
     }
 }
@@ -1,12 +1,11 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
+import com.matthewn4444.ebml.elements.ElementBase;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 public abstract class Caption {
 
@@ -67,18 +66,16 @@ public abstract class Caption {
     private final TimePoint mStart;
     private final TimePoint mEnd;
     private final Subtitles.Type mType;
-    private final boolean mIsCompressed;
-    private final Inflater mDecompressor;
+    private final ContentDecoder mDecoder;
     private final BlockElement mBlock;
 
-    public Caption(Subtitles.Type type, BlockElement block, int timecode, int duration, boolean isCompressed) {
+    public Caption(Subtitles.Type type, BlockElement block, int timecode, int duration, ContentDecoder decoder) {
         mType = type;
         mBlock = block;
-        mIsCompressed = isCompressed;
+        mDecoder = decoder;
         int start = block.getTimecode() + timecode;
         mStart = new TimePoint(start);
         mEnd = new TimePoint(start + duration);
-        mDecompressor = new Inflater();
     }
 
     public abstract String getFormattedText();
@@ -87,28 +84,7 @@ public abstract class Caption {
     public byte[] getByteData() {
         try {
             byte[] data = mBlock.readData();
-            if (mIsCompressed) {
-                // Run zlib decompression on these bytes
-                mDecompressor.setInput(data);
-                ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
-                try {
-                    byte[] buf = new byte[1024];
-                    while (!mDecompressor.finished()) {
-                        int count = mDecompressor.inflate(buf);
-                        bos.write(buf, 0, count);
-                    }
-                    return bos.toByteArray();
-                } catch (DataFormatException e) {
-                    e.printStackTrace();
-                } finally {
-                    try {
-                        bos.close();
-                    } catch (IOException ignored) {
-                    }
-                }
-            } else {
-                return data;
-            }
+            return mDecoder != null ? mDecoder.decode(data) : data;
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -121,7 +97,7 @@ public abstract class Caption {
             return null;
         }
         try {
-            return new String(data, "utf8");
+            return new String(data, ElementBase.CHARSET);
         } catch (UnsupportedEncodingException e) {
             e.printStackTrace();
         }
@@ -140,6 +116,14 @@ public abstract class Caption {
         return mType;
     }
 
+    /**
+     * Get the block that has the data of this caption
+     * @return block
+     */
+    public BlockElement getBlock() {
+        return mBlock;
+    }
+
     protected void formatTimePoint(TimePoint time, StringBuilder sb) {
         int hours = time.getHours();
         int min = time.getMinutes();
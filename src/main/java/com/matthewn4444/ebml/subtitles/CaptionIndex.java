@@ -0,0 +1,161 @@
+package com.matthewn4444.ebml.subtitles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Finds the captions that are shown at a time or during a range of time. Captions are kept in
+ * levels that are sorted by start time, the sizes of the levels are different powers of two and
+ * two levels of the same size are merged when a caption is added. Each level has a tree of the
+ * latest end time so that the captions that already ended can be skipped, a query is then
+ * O(log^2 n + k) for k captions found and adding a caption is O(log n) on average.
+ * This is not thread safe, Subtitles holds its lock around it.
+ */
+final class CaptionIndex {
+    private static final Comparator<Caption> START_ORDER = new Comparator<Caption>() {
+        @Override
+        public int compare(Caption a, Caption b) {
+            int startA = a.getStartTime().getTime();
+            int startB = b.getStartTime().getTime();
+            return startA < startB ? -1 : (startA == startB ? 0 : 1);
+        }
+    };
+
+    // Levels from largest to smallest
+    private final ArrayList<Level> mLevels = new ArrayList<>();
+    private int mSize;
+
+    private static final class Level {
+        final Caption[] mCaptions;
+        final int[] mStarts;
+        final int[] mEnds;
+
+        // Latest end time of each node, the leaves start at mLeafOffset
+        final int[] mMaxEnds;
+        final int mLeafOffset;
+
+        Level(Caption[] captions) {
+            mCaptions = captions;
+            mStarts = new int[captions.length];
+            mEnds = new int[captions.length];
+            for (int i = 0; i < captions.length; i++) {
+                mStarts[i] = captions[i].getStartTime().getTime();
+                mEnds[i] = captions[i].getEndTime().getTime();
+            }
+            int leafOffset = 1;
+            while (leafOffset < captions.length) {
+                leafOffset <<= 1;
+            }
+            mLeafOffset = leafOffset;
+            mMaxEnds = new int[leafOffset * 2];
+            for (int i = 0; i < leafOffset; i++) {
+                mMaxEnds[leafOffset + i] = i < captions.length ? mEnds[i] : Integer.MIN_VALUE;
+            }
+            for (int i = leafOffset - 1; i > 0; i--) {
+                mMaxEnds[i] = Math.max(mMaxEnds[i * 2], mMaxEnds[i * 2 + 1]);
+            }
+        }
+
+        int size() {
+            return mCaptions.length;
+        }
+
+        /**
+         * Add the captions that start before a time and end after another
+         * @param startBefore captions must start before this time
+         * @param endAfter captions must end after this time
+         * @param out list to add to
+         */
+        void collect(int startBefore, int endAfter, List<Caption> out) {
+            // Captions are sorted by start, only the ones before this count can match
+            int low = 0;
+            int high = mStarts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (mStarts[mid] < startBefore) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low > 0) {
+                collect(1, 0, mLeafOffset, low, endAfter, out);
+            }
+        }
+
+        private void collect(int node, int nodeStart, int nodeEnd, int count, int endAfter,
+                             List<Caption> out) {
+            if (nodeStart >= count || mMaxEnds[node] <= endAfter) {
+                return;
+            }
+            if (node >= mLeafOffset) {
+                out.add(mCaptions[nodeStart]);
+                return;
+            }
+            int mid = (nodeStart + nodeEnd) >>> 1;
+            collect(node * 2, nodeStart, mid, count, endAfter, out);
+            collect(node * 2 + 1, mid, nodeEnd, count, endAfter, out);
+        }
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void add(Caption caption) {
+        Caption[] merged = new Caption[] { caption };
+        while (!mLevels.isEmpty() && mLevels.get(mLevels.size() - 1).size() == merged.length) {
+            merged = merge(mLevels.remove(mLevels.size() - 1).mCaptions, merged);
+        }
+        mLevels.add(new Level(merged));
+        mSize++;
+    }
+
+    /**
+     * Get the captions shown at a time, which start at or before it and end after it
+     * @param time in ms
+     * @return captions sorted by start time
+     */
+    List<Caption> getAt(int time) {
+        return getOverlapping(time, time + 1);
+    }
+
+    /**
+     * Get the captions shown any time during a range
+     * @param from start of the range in ms
+     * @param to end of the range in ms, not included
+     * @return captions sorted by start time
+     */
+    List<Caption> getOverlapping(int from, int to) {
+        ArrayList<Caption> out = new ArrayList<>();
+        if (from >= to) {
+            return out;
+        }
+        for (int i = 0; i < mLevels.size(); i++) {
+            mLevels.get(i).collect(to, from, out);
+        }
+        if (mLevels.size() > 1) {
+            Collections.sort(out, START_ORDER);
+        }
+        return out;
+    }
+
+    private static Caption[] merge(Caption[] a, Caption[] b) {
+        Caption[] merged = new Caption[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            merged[k++] = START_ORDER.compare(b[j], a[i]) < 0 ? b[j++] : a[i++];
+        }
+        while (i < a.length) {
+            merged[k++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[k++] = b[j++];
+        }
+        return merged;
+    }
+}
@@ -1,11 +1,12 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
 
 public class PGSCaption extends Caption {
     public PGSCaption(BlockElement block, int timecode, int duration,
-                      boolean isCompressed) {
-        super(Subtitles.Type.PGS, block, timecode, duration, isCompressed);
+                      ContentDecoder decoder) {
+        super(Subtitles.Type.PGS, block, timecode, duration, decoder);
     }
 
     @Override
@@ -1,24 +1,28 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
 
+import java.io.IOException;
+import java.io.Writer;
+
 import static com.matthewn4444.ebml.subtitles.Subtitles.Type.PGS;
 
 public class PGSSubtitles extends Subtitles {
 
     PGSSubtitles(int trackNumber, long position, long size, boolean isEnabled, boolean isDefault,
-                 String name, String language, boolean isCompressed) {
+                 String name, String language, ContentDecoder decoder) {
         super(PGS, trackNumber, position, size, isEnabled, isDefault, name, language,
-                isCompressed);
+                decoder);
     }
 
     @Override
     public void appendBlock(BlockElement block, int timecode, int duration) {
-        appendCaption(new PGSCaption(block, timecode, duration, mIsCompressed));
+        appendCaption(new PGSCaption(block, timecode, duration, mDecoder));
     }
 
     @Override
-    protected String getContents() {
+    void writeCaption(Writer out, Caption caption, int number) throws IOException {
         throw new UnsupportedOperationException();
     }
 }
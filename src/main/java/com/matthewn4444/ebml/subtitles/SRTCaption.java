@@ -1,12 +1,13 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
 
 public class SRTCaption extends Caption {
     private String mCachedData;
 
-    public SRTCaption(BlockElement block, int timecode, int duration, boolean isCompressed) {
-        super(Subtitles.Type.SRT, block, timecode, duration, isCompressed);
+    public SRTCaption(BlockElement block, int timecode, int duration, ContentDecoder decoder) {
+        super(Subtitles.Type.SRT, block, timecode, duration, decoder);
     }
 
     @Override
@@ -1,32 +1,28 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public class SRTSubtitles extends Subtitles {
 
     SRTSubtitles(int trackNumber, long position, long size, boolean isEnabled,
-            boolean isDefault, String name, String language, boolean isCompressed) {
+            boolean isDefault, String name, String language, ContentDecoder decoder) {
         super(Subtitles.Type.SRT, trackNumber, position, size, isEnabled, isDefault, name,
-                language, isCompressed);
+                language, decoder);
     }
 
     @Override
     public void appendBlock(BlockElement block, int timecode, int duration) {
-        appendCaption(new SRTCaption(block, timecode, duration, mIsCompressed));
+        appendCaption(new SRTCaption(block, timecode, duration, mDecoder));
     }
 
     @Override
-    protected String getContents() {
-        StringBuilder sb = new StringBuilder();
-        int subNumber = 1;
-        for (int i = 0; i < mReadCaptions.size(); i++) {
-            sb.append(subNumber++).append('\n');
-            sb.append(mReadCaptions.get(i).getFormattedText());
-        }
-        for (int i = 0; i < mUnreadCaptions.size(); i++) {
-            sb.append(subNumber++).append('\n');
-            sb.append(mUnreadCaptions.get(i).getFormattedText());
-        }
-        return sb.toString();
+    void writeCaption(Writer out, Caption caption, int number) throws IOException {
+        out.write(Integer.toString(number));
+        out.write('\n');
+        out.write(caption.getFormattedText());
     }
 }
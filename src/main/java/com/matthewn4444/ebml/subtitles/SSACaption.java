@@ -1,13 +1,14 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
 
 public class SSACaption extends Caption {
     private String mCachedData;
     private String mCachedVTT;
 
-    public SSACaption(BlockElement block, int timecode, int duration, boolean isCompressed) {
-        super(Subtitles.Type.SSA, block, timecode, duration, isCompressed);
+    public SSACaption(BlockElement block, int timecode, int duration, ContentDecoder decoder) {
+        super(Subtitles.Type.SSA, block, timecode, duration, decoder);
     }
 
     @Override
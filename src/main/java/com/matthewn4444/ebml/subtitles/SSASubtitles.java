@@ -1,33 +1,35 @@
 package com.matthewn4444.ebml.subtitles;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.elements.BlockElement;
 
+import java.io.IOException;
+import java.io.Writer;
+
 public class SSASubtitles extends Subtitles {
     private final String mHeaderData;
 
     SSASubtitles(int trackNumber, long position, long size, boolean isEnabled, boolean isDefault,
-            String name, String language, String headerData, boolean isCompressed) {
+            String name, String language, String headerData, ContentDecoder decoder) {
         super(Subtitles.Type.SSA, trackNumber, position, size, isEnabled, isDefault, name,
-                language, isCompressed);
+                language, decoder);
         mHeaderData = headerData;
     }
 
     @Override
     public void appendBlock(BlockElement block, int timecode, int duration) {
-        appendCaption(new SSACaption(block, timecode, duration, mIsCompressed));
+        appendCaption(new SSACaption(block, timecode, duration, mDecoder));
+    }
+
+    @Override
+    void writeHeader(Writer out) throws IOException {
+        out.write(mHeaderData);
     }
 
     @Override
-    protected String getContents() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(mHeaderData);
-        for (int i = 0; i < mReadCaptions.size(); i++) {
-            sb.append(mReadCaptions.get(i).getFormattedText()).append("\n");
-        }
-        for (int i = 0; i < mUnreadCaptions.size(); i++) {
-            sb.append(mUnreadCaptions.get(i).getFormattedText()).append("\n");
-        }
-        return sb.toString();
+    void writeCaption(Writer out, Caption caption, int number) throws IOException {
+        out.write(caption.getFormattedText());
+        out.write('\n');
     }
 
     public String getHeader() {
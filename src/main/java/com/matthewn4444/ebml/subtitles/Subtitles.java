@@ -2,16 +2,16 @@ package com.matthewn4444.ebml.subtitles;
 
 import android.util.Log;
 
+import com.matthewn4444.ebml.ContentDecoder;
 import com.matthewn4444.ebml.Tracks;
 import com.matthewn4444.ebml.elements.BlockElement;
 import com.matthewn4444.ebml.elements.IntElement;
 import com.matthewn4444.ebml.elements.MasterElement;
 
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
 import java.io.UnsupportedEncodingException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,20 +25,24 @@ public abstract class Subtitles extends Tracks {
         SSA, SRT, PGS
     };
 
-    protected final boolean mIsCompressed;
+    protected final ContentDecoder mDecoder;
     protected final Type mType;
 
     protected final ArrayList<Caption> mUnreadCaptions;
     protected final ArrayList<Caption> mReadCaptions;
 
+    // All captions by time, guarded by the lock of the unread captions
+    private final CaptionIndex mCaptionIndex = new CaptionIndex();
+
     /**
      * Creates the subtitles class from a blackgroup of data read from a cluster entry
      * Internal use only
      * @param blockgroup MasterElement containing cluster blockgroup information
+     * @param decoder of the content encodings of the track, null if it is not encoded
      * @return a subtitles object containing all readable data
      * @throws UnsupportedEncodingException
      */
-    static public Subtitles CreateSubsFromBlockGroup(MasterElement blockgroup, boolean hasCompression) throws UnsupportedEncodingException {
+    static public Subtitles CreateSubsFromBlockGroup(MasterElement blockgroup, ContentDecoder decoder) throws UnsupportedEncodingException {
         if (blockgroup.getValueInt(Tracks.TYPE) == Tracks.Type.SUBTITLE) {
             int trackNumber = blockgroup.getValueInt(Tracks.NUMBER);
             IntElement enableEl = (IntElement) blockgroup.getElement(Tracks.IS_ENABLED);
@@ -51,15 +55,15 @@ public abstract class Subtitles extends Tracks {
             if (codecID.equals(SSA_CODEC_ID)) {
                 return new SSASubtitles(trackNumber, blockgroup.getFilePosition(),
                         blockgroup.getFileLength(), isEnabled, isDefault, name, language,
-                        blockgroup.getValueString(Tracks.CODEC_PRIVATE), hasCompression);
+                        blockgroup.getValueString(Tracks.CODEC_PRIVATE), decoder);
             } else if (codecID.equals(SRT_CODEC_ID)) {
                 return new SRTSubtitles(trackNumber, blockgroup.getFilePosition(),
                         blockgroup.getFileLength(), isEnabled, isDefault, name, language,
-                        hasCompression);
+                        decoder);
             } else if (codecID.equals(PGS_CODEC_ID)) {
                 return new PGSSubtitles(trackNumber, blockgroup.getFilePosition(),
                         blockgroup.getFileLength(), isEnabled, isDefault, name, language,
-                        hasCompression);
+                        decoder);
             }
             Log.w(TAG, "Unable to parse subtitles codec id: " + codecID);
         }
@@ -67,9 +71,9 @@ public abstract class Subtitles extends Tracks {
     }
 
     Subtitles(Type type, int trackNumber, long position, long size,
-              boolean isEnabled, boolean isDefault, String name, String language, boolean isCompressed) {
+              boolean isEnabled, boolean isDefault, String name, String language, ContentDecoder decoder) {
         super(trackNumber, position, size, isEnabled, isDefault, name, language);
-        mIsCompressed = isCompressed;
+        mDecoder = decoder;
         mType = type;
         mUnreadCaptions = new ArrayList<>();
         mReadCaptions = new ArrayList<>();
@@ -114,45 +118,55 @@ public abstract class Subtitles extends Tracks {
         return mReadCaptions;
     }
 
+    /**
+     * Get all the captions that were appended, the read captions followed by the unread ones
+     * @return a new list of the captions
+     */
+    public List<Caption> getAllCaptions() {
+        synchronized (mUnreadCaptions) {
+            ArrayList<Caption> list = new ArrayList<>(mReadCaptions.size() + mUnreadCaptions.size());
+            list.addAll(mReadCaptions);
+            list.addAll(mUnreadCaptions);
+            return list;
+        }
+    }
+
+    /**
+     * Get the captions that are shown at a time, read and unread. This can be used while the
+     * subtitles are still being appended.
+     * @param timeMs time in ms
+     * @return captions sorted by start time
+     */
+    public List<Caption> getCaptionsAt(int timeMs) {
+        synchronized (mUnreadCaptions) {
+            return mCaptionIndex.getAt(timeMs);
+        }
+    }
+
+    /**
+     * Get the captions that are shown at any time during a range, read and unread. This can be
+     * used while the subtitles are still being appended.
+     * @param fromMs start of the range in ms
+     * @param toMs end of the range in ms, not included
+     * @return captions sorted by start time
+     */
+    public List<Caption> getCaptionsInRange(int fromMs, int toMs) {
+        synchronized (mUnreadCaptions) {
+            return mCaptionIndex.getOverlapping(fromMs, toMs);
+        }
+    }
+
     /**
      * Write a WebVTT file of this subtitle after all is appended
      * @param path to save the file
      * @return if it wrote successfully
      */
     public boolean writeVTTFile(String path) {
-        OutputStreamWriter out = null;
-        try {
-            out = new OutputStreamWriter(new FileOutputStream(path), "utf8");
-
-            StringBuilder sb = new StringBuilder();
-            sb.append("WEBVTT\n\n");
-            int n = 1;
-            for (Caption caption : mReadCaptions) {
-                String entry = caption.getFormattedVTT();
-                if (entry != null) {
-                    sb.append(n++).append('\n')
-                        .append(caption.getStartTime().format())
-                        .append(" --> ")
-                        .append(caption.getEndTime().format()).append('\n')
-                        .append(caption.getFormattedVTT().replaceAll("(?i)\\\\n", "\n"))
-                        .append("\n\n");
-                }
-            }
-            out.append(sb.toString());
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                }
-            }
+        ArrayList<Caption> captions;
+        synchronized (mUnreadCaptions) {
+            captions = new ArrayList<>(mReadCaptions);
         }
-        return true;
+        return writeFile(path, captions, true);
     }
 
     /**
@@ -161,24 +175,7 @@ public abstract class Subtitles extends Tracks {
      * @return if successful
      */
     public boolean writeFile(String path) {
-        OutputStreamWriter out = null;
-        try {
-            out = new OutputStreamWriter(new FileOutputStream(path), "utf8");
-            out.append(getContents());
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-            return false;
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            if (out != null) {
-                try {
-                    out.close();
-                } catch (IOException e) {
-                }
-            }
-        }
-        return true;
+        return writeFile(path, getAllCaptions(), false);
     }
 
     /**
@@ -220,11 +217,46 @@ public abstract class Subtitles extends Tracks {
         return Tracks.Type.SUBTITLE;
     }
 
-    protected abstract String getContents();
+    /**
+     * Write the text before the captions of a file, used by SubtitlesWriter
+     * @param out to write to
+     * @throws IOException
+     */
+    void writeHeader(Writer out) throws IOException {
+    }
+
+    /**
+     * Write a caption in the format of this subtitle, used by SubtitlesWriter
+     * @param out to write to
+     * @param caption to write
+     * @param number of the caption in the file, starting from 1
+     * @throws IOException
+     */
+    abstract void writeCaption(Writer out, Caption caption, int number) throws IOException;
+
+    private boolean writeFile(String path, List<Caption> captions, boolean vtt) {
+        SubtitlesWriter writer = null;
+        try {
+            writer = new SubtitlesWriter(this, new FileOutputStream(path), vtt);
+            writer.write(captions);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                }
+            }
+        }
+        return true;
+    }
 
     protected void appendCaption(Caption caption) {
         synchronized (mUnreadCaptions) {
             mUnreadCaptions.add(caption);
+            mCaptionIndex.add(caption);
         }
     }
 }
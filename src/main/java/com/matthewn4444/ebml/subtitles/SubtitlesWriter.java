@@ -0,0 +1,177 @@
+package com.matthewn4444.ebml.subtitles;
+
+import com.matthewn4444.ebml.elements.ElementBase;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+
+/**
+ * Writes the captions of a subtitle track to a stream one caption at a time, in the format of the
+ * track (SRT or SSA) or as WebVTT. Only a small buffer is kept so the whole file is never held in
+ * memory, and captions can be written as they are read from the video.
+ *
+ * Usage:
+ *      SubtitlesWriter writer = new SubtitlesWriter(subs, new FileOutputStream(path), false);
+ *      try {
+ *          while (reading) {
+ *              writer.write(subs.readUnreadSubtitles());
+ *          }
+ *      } finally {
+ *          writer.close();
+ *      }
+ *
+ * The header is written before the first caption, or on close if there were no captions.
+ */
+public class SubtitlesWriter implements Closeable, Flushable {
+    public static final int BUFFER_SIZE = 8 * 1024;
+
+    private static final String VTT_HEADER = "WEBVTT\n\n";
+
+    private final Subtitles mSubtitles;
+    private final Writer mOut;
+    private final boolean mIsVTT;
+    private boolean mWroteHeader;
+    private int mCount;
+
+    /**
+     * Write to a writer, it is not buffered any further
+     * @param subtitles track of the captions
+     * @param out to write to, closed when this writer is closed
+     * @param vtt true to write WebVTT instead of the format of the track
+     */
+    public SubtitlesWriter(Subtitles subtitles, Writer out, boolean vtt) {
+        if (!vtt && subtitles.getType() == Subtitles.Type.PGS) {
+            throw new UnsupportedOperationException("Cannot write PGS subtitles as text");
+        }
+        mSubtitles = subtitles;
+        mOut = out;
+        mIsVTT = vtt;
+    }
+
+    /**
+     * Write utf8 text to a stream
+     * @param subtitles track of the captions
+     * @param out to write to, closed when this writer is closed
+     * @param vtt true to write WebVTT instead of the format of the track
+     * @throws IOException
+     */
+    public SubtitlesWriter(Subtitles subtitles, OutputStream out, boolean vtt)
+            throws IOException {
+        this(subtitles, new BufferedWriter(new OutputStreamWriter(out, ElementBase.CHARSET),
+                BUFFER_SIZE), vtt);
+    }
+
+    /**
+     * Write utf8 text to a channel
+     * @param subtitles track of the captions
+     * @param channel to write to, closed when this writer is closed
+     * @param vtt true to write WebVTT instead of the format of the track
+     */
+    public SubtitlesWriter(Subtitles subtitles, WritableByteChannel channel, boolean vtt) {
+        this(subtitles, new BufferedWriter(Channels.newWriter(channel, ElementBase.CHARSET),
+                BUFFER_SIZE), vtt);
+    }
+
+    /**
+     * Write captions after the ones already written, such as the list from readUnreadSubtitles()
+     * @param captions to write in order
+     * @return amount of captions written, WebVTT skips captions that have no text for it
+     * @throws IOException
+     */
+    public int write(List<Caption> captions) throws IOException {
+        writeHeader();
+        int written = 0;
+        for (int i = 0; i < captions.size(); i++) {
+            if (write(captions.get(i))) {
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Write a caption after the ones already written
+     * @param caption to write
+     * @return if it was written, WebVTT skips captions that have no text for it
+     * @throws IOException
+     */
+    public boolean write(Caption caption) throws IOException {
+        writeHeader();
+        if (mIsVTT) {
+            String entry = caption.getFormattedVTT();
+            if (entry == null) {
+                return false;
+            }
+            mOut.write(Integer.toString(++mCount));
+            mOut.write('\n');
+            mOut.write(caption.getStartTime().format());
+            mOut.write(" --> ");
+            mOut.write(caption.getEndTime().format());
+            mOut.write('\n');
+            writeVTTText(entry);
+            mOut.write("\n\n");
+        } else {
+            mSubtitles.writeCaption(mOut, caption, ++mCount);
+        }
+        return true;
+    }
+
+    /**
+     * Get the amount of captions written
+     * @return count of captions
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            writeHeader();
+        } finally {
+            mOut.close();
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        if (!mWroteHeader) {
+            mWroteHeader = true;
+            if (mIsVTT) {
+                mOut.write(VTT_HEADER);
+            } else {
+                mSubtitles.writeHeader(mOut);
+            }
+        }
+    }
+
+    // SSA line breaks are written as \N or \n, WebVTT uses real line breaks
+    private void writeVTTText(String text) throws IOException {
+        int start = 0;
+        int length = text.length();
+        for (int i = 0; i < length - 1; i++) {
+            if (text.charAt(i) == '\\') {
+                char next = text.charAt(i + 1);
+                if (next == 'n' || next == 'N') {
+                    mOut.write(text, start, i - start);
+                    mOut.write('\n');
+                    start = i + 2;
+                    i++;
+                }
+            }
+        }
+        mOut.write(text, start, length - start);
+    }
+}